@@ -0,0 +1,170 @@
+package vvhile.benchmark;
+
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * A benchmark measures the average time one call of an operation takes. The
+ * operation is first run for some warmup iterations, so that the virtual
+ * machine can compile it, and then for some measurement iterations. Each
+ * iteration runs the operation for a fixed amount of time. The result is the
+ * mean time per call over all measurement iterations together with its
+ * standard deviation.
+ *
+ * The value returned by the operation is consumed, so that the virtual
+ * machine cannot remove the computation as dead code. Results are printed to
+ * the standard output as it was when the benchmark was created, so that
+ * benchmarks can silence the output of the measured code.
+ *
+ * @author markus
+ */
+public class Benchmark {
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final PrintStream out;
+
+    // every result is mixed into this field
+    private static volatile int sink;
+
+    /**
+     * Creates a benchmark with 5 warmup and 5 measurement iterations of one
+     * second each.
+     */
+    public Benchmark() {
+        this(5, 5, 1000);
+    }
+
+    /**
+     * Creates a new benchmark.
+     *
+     * @param warmupIterations number of warmup iterations
+     * @param measurementIterations number of measured iterations
+     * @param iterationMillis duration of one iteration in milliseconds
+     */
+    public Benchmark(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.out = System.out;
+    }
+
+    /**
+     * Creates a benchmark configured by the system properties
+     * benchmark.warmups, benchmark.iterations and benchmark.millis.
+     *
+     * @return a benchmark
+     */
+    public static Benchmark fromSystemProperties() {
+        return new Benchmark(
+                Integer.getInteger("benchmark.warmups", 5),
+                Integer.getInteger("benchmark.iterations", 5),
+                Long.getLong("benchmark.millis", 1000)
+        );
+    }
+
+    /**
+     * Measures the given operation and prints the result.
+     *
+     * @param name name of the measurement
+     * @param operation the operation to measure
+     * @return the result
+     */
+    public Result measure(String name, Supplier<?> operation) {
+        // find a number of calls that takes about a millisecond, so that the
+        // clock is not read after every call
+        long batch = 1;
+        while (time(operation, batch) < 1_000_000 && batch < (1L << 40)) {
+            batch *= 2;
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation, batch);
+        }
+        double[] times = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            times[i] = iteration(operation, batch);
+        }
+        Result result = new Result(name, times);
+        out.println(result);
+        return result;
+    }
+
+    /*
+     * Runs the operation for the duration of an iteration and returns the time
+     * per call in nanoseconds.
+     */
+    private double iteration(Supplier<?> operation, long batch) {
+        long calls = 0;
+        long elapsed = 0;
+        while (elapsed < iterationNanos) {
+            elapsed += time(operation, batch);
+            calls += batch;
+        }
+        return (double) elapsed / calls;
+    }
+
+    private static long time(Supplier<?> operation, long calls) {
+        int hash = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < calls; i++) {
+            Object result = operation.get();
+            hash += result == null ? 0 : result.hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += hash;
+        return elapsed;
+    }
+
+    /**
+     * The result of a measurement.
+     */
+    public static class Result {
+
+        private final String name;
+        private final double mean;
+        private final double deviation;
+
+        private Result(String name, double[] times) {
+            this.name = name;
+            double sum = 0;
+            for (double time : times) {
+                sum += time;
+            }
+            this.mean = sum / times.length;
+            double squares = 0;
+            for (double time : times) {
+                squares += (time - mean) * (time - mean);
+            }
+            this.deviation = times.length > 1 ? Math.sqrt(squares / (times.length - 1)) : 0;
+        }
+
+        /**
+         * @return name of the measurement
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return mean time per call in nanoseconds
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * @return standard deviation of the time per call in nanoseconds
+         */
+        public double getDeviation() {
+            return deviation;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-50s %14.1f +- %10.1f ns/op", name, mean, deviation);
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package vvhile.benchmark;
+
+import java.util.function.IntFunction;
+import vvhile.util.BoundedBuffer;
+import vvhile.util.Buffer;
+import vvhile.util.BufferReader;
+import vvhile.util.BufferWriter;
+import vvhile.util.RingBuffer;
+
+/**
+ * Compares the synchronized bounded buffer with the lock-free ring buffer at
+ * the capacity the pipeline uses. Three cases are measured for each buffer:
+ * <ul>
+ * <li>uncontended: one thread puts an object and takes it out again.</li>
+ * <li>handoff: a producer thread puts objects as fast as it can and the
+ * measuring thread takes them out.</li>
+ * <li>batched handoff: the same, but the objects are put and taken in
+ * batches by a buffer writer and a buffer reader. This is how the stages of
+ * the compilation use the buffers.</li>
+ * </ul>
+ *
+ * @author markus
+ */
+public class BufferBenchmark {
+
+    // capacity of the buffers between the stages of the pipeline
+    private static final int CAPACITY = 32;
+
+    public static void main(String[] args) {
+        Benchmark benchmark = Benchmark.fromSystemProperties();
+        measure(benchmark, "BoundedBuffer", BoundedBuffer::new);
+        measure(benchmark, "RingBuffer", RingBuffer::new);
+        // the producers never stop
+        System.exit(0);
+    }
+
+    private static void measure(Benchmark benchmark, String name, IntFunction<Buffer<Object>> factory) {
+        Object token = new Object();
+        Buffer<Object> single = factory.apply(CAPACITY);
+        benchmark.measure(name + " capacity=" + CAPACITY + " uncontended", () -> {
+            single.put(token);
+            return single.get();
+        });
+
+        Buffer<Object> handoff = factory.apply(CAPACITY);
+        Thread producer = new Thread(() -> {
+            while (true) {
+                handoff.put(token);
+            }
+        }, name + " producer");
+        producer.setDaemon(true);
+        producer.start();
+        benchmark.measure(name + " capacity=" + CAPACITY + " handoff", handoff::get);
+
+        Buffer<Object> batched = factory.apply(CAPACITY);
+        Thread batchProducer = new Thread(() -> {
+            BufferWriter<Object> writer = new BufferWriter<>(batched);
+            while (true) {
+                writer.accept(token);
+            }
+        }, name + " batch producer");
+        batchProducer.setDaemon(true);
+        batchProducer.start();
+        BufferReader<Object> reader = new BufferReader<>(batched);
+        benchmark.measure(name + " capacity=" + CAPACITY + " batched handoff", reader::get);
+    }
+
+}
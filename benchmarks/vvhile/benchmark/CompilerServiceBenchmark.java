@@ -0,0 +1,54 @@
+package vvhile.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import vvhile.basic.language.ProgramGenerator;
+import vvhile.frontend.CompilerService;
+
+/**
+ * Measures how the compilation of a batch of programs scales with the number
+ * of threads of a compiler service. The batch consists of generated programs
+ * of different sizes. The numbers of threads are given by the system property
+ * benchmark.threads, a comma separated list. By default it doubles the
+ * number of threads up to the number of processors.
+ *
+ * @author markus
+ */
+public class CompilerServiceBenchmark {
+
+    // number of programs of the batch
+    private static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) {
+        Benchmark benchmark = Benchmark.fromSystemProperties();
+        List<String> sources = new ArrayList<>(BATCH_SIZE);
+        for (long seed = 0; seed < BATCH_SIZE; seed++) {
+            sources.add(new ProgramGenerator(seed).generate(10 + (int) (seed % 100)).getSource());
+        }
+        for (int threads : threads()) {
+            try (CompilerService service = CompilerService.forPrograms(threads)) {
+                Benchmark.Result result = benchmark.measure("CompilerService.compile threads=" + threads,
+                        () -> service.compile(sources));
+                System.out.printf("    %.0f programs/s%n", BATCH_SIZE / (result.getMean() / 1e9));
+            }
+        }
+    }
+
+    private static List<Integer> threads() {
+        List<Integer> threads = new ArrayList<>();
+        String property = System.getProperty("benchmark.threads");
+        if (property != null) {
+            for (String count : property.split(",")) {
+                threads.add(Integer.parseInt(count.trim()));
+            }
+        } else {
+            int processors = Runtime.getRuntime().availableProcessors();
+            for (int count = 1; count < processors; count *= 2) {
+                threads.add(count);
+            }
+            threads.add(processors);
+        }
+        return threads;
+    }
+
+}
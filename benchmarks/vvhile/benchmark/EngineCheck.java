@@ -0,0 +1,101 @@
+package vvhile.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import vvhile.backend.BytecodeCompiler;
+import vvhile.backend.CompiledProgram;
+import vvhile.basic.language.BasicRuleSet;
+import vvhile.basic.language.ProgramGenerator;
+import vvhile.frontend.Pipeline;
+import vvhile.intrep.Interpreter;
+import vvhile.intrep.State;
+import vvhile.intrep.Statement;
+
+/**
+ * Runs the same programs with every engine and checks that they agree: the
+ * interpreter in small-step mode, the interpreter in big-step mode, which
+ * evaluates compiled expressions, and the bytecode compiler. For every program
+ * the engines have to end in the same state and throw the same exception, if
+ * any.
+ *
+ * Besides some fixed programs that fail in different ways, random programs of
+ * the program generator are run. Their number is given by the system property
+ * check.programs. The check prints one line per disagreement and exits with
+ * status 1 if there is any.
+ *
+ * @author markus
+ */
+public class EngineCheck {
+
+    // programs whose results depend on the order arguments are evaluated in
+    private static final String[] PROGRAMS = {
+        "X := 0; if ((X > 0) & ((1 / X) > 0)) { Y := 1 } else { Y := 2 }",
+        "X := 0; if ((X = 0) | ((1 / X) > 0)) { Y := 1 } else { Y := 2 }",
+        "X := 0; if ((X > 0) -> ((1 / X) > 0)) { Y := 1 } else { Y := 2 }",
+        "X := 1; if ((X > 0) & (Y > 0)) { Z := 1 } else { Z := 2 }",
+        "X := 0; if ((X = 0) | (Y > 0)) { Z := 1 } else { Z := 2 }",
+        "X := 3; Y := 0; while (X > 0) { X := X - 1; Y := Y + (6 / X) }",
+        "X := 9223372036854775807; Y := X + 1; Z := (Y * Y) - Y; X := Z / Y",
+        "X := 5; Y := X + Z"
+    };
+    // seed of the generated programs
+    private static final long SEED = 42;
+    // number of statements of a generated program
+    private static final int SIZE = 40;
+
+    public static void main(String[] args) {
+        List<String> sources = new ArrayList<>(Arrays.asList(PROGRAMS));
+        ProgramGenerator generator = new ProgramGenerator(SEED);
+        int programs = Integer.getInteger("check.programs", 100);
+        for (int i = 0; i < programs; i++) {
+            sources.add(generator.generate(SIZE).getSource());
+        }
+        Pipeline pipeline = new Pipeline(new BasicRuleSet(), Pipeline.Mode.SYNCHRONOUS);
+        BytecodeCompiler compiler = new BytecodeCompiler();
+        int disagreements = 0;
+        for (String source : sources) {
+            Statement statement = (Statement) pipeline.compile(source, BasicRuleSet.STM).getRoot();
+            CompiledProgram program = compiler.compile(statement);
+            String smallStep = run(state -> new Interpreter(Interpreter.Mode.SMALL_STEP).run(statement, state));
+            String bigStep = run(state -> new Interpreter(Interpreter.Mode.BIG_STEP).run(statement, state));
+            String bytecode = run(program::run);
+            if (!smallStep.equals(bigStep) || !smallStep.equals(bytecode)) {
+                disagreements++;
+                System.out.println("Engines disagree on: " + source.replace('\n', ' '));
+                System.out.println("    small-step: " + smallStep);
+                System.out.println("    big-step:   " + bigStep);
+                System.out.println("    bytecode:   " + bytecode);
+            }
+        }
+        System.out.println(sources.size() + " programs, " + disagreements + " disagreements");
+        System.exit(disagreements == 0 ? 0 : 1);
+    }
+
+    /*
+     * Runs an engine in an empty state and describes the outcome: the
+     * exception, if any, and the variables of the state in alphabetical
+     * order. The state is changed in place by all engines, so it is also
+     * complete if the program fails.
+     */
+    private static String run(Engine engine) {
+        State state = new State();
+        String outcome;
+        try {
+            engine.run(state);
+            outcome = "terminated";
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getName() + ": " + e.getMessage();
+        }
+        String[] variables = state.toString().split("\n");
+        Arrays.sort(variables);
+        return outcome + " " + String.join(", ", variables);
+    }
+
+    private interface Engine {
+
+        void run(State state);
+
+    }
+
+}
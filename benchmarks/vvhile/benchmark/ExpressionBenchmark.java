@@ -0,0 +1,117 @@
+package vvhile.benchmark;
+
+import vvhile.basic.language.BasicOperators;
+import vvhile.hoare.BooleanFormula;
+import vvhile.intrep.CompiledExpression;
+import vvhile.intrep.Expression;
+import vvhile.intrep.ExpressionCompiler;
+import vvhile.intrep.Operator;
+import vvhile.intrep.State;
+
+/**
+ * Evaluates deep arithmetic and boolean expressions. Every expression is
+ * evaluated three times: once the way Expression.Function.getValue() does it,
+ * once the way it used to, where the values of the arguments are collected in
+ * an array and passed to the general evaluate()-method of the operator, and
+ * once compiled by the ExpressionCompiler.
+ *
+ * @author markus
+ */
+public class ExpressionBenchmark {
+
+    private static final String[] VARIABLES = {"X", "Y", "Z"};
+
+    public static void main(String[] args) {
+        Benchmark benchmark = Benchmark.fromSystemProperties();
+        State state = new State();
+        for (int i = 0; i < VARIABLES.length; i++) {
+            state.substitute((long) (i + 2), new Expression.Variable(Expression.SORT_INTEGER, VARIABLES[i]));
+        }
+        for (int depth : new int[]{4, 8, 12}) {
+            Expression arithmetic = arithmetic(depth, 0);
+            Expression bool = bool(depth, 0);
+            CompiledExpression compiledArithmetic = ExpressionCompiler.compile(arithmetic);
+            CompiledExpression compiledBool = ExpressionCompiler.compile(bool);
+            benchmark.measure("arithmetic depth=" + depth + " varargs",
+                    () -> evaluateVarargs(arithmetic, state));
+            benchmark.measure("arithmetic depth=" + depth + " specialized",
+                    () -> arithmetic.getValue(state));
+            benchmark.measure("arithmetic depth=" + depth + " compiled",
+                    () -> compiledArithmetic.evaluate(state));
+            benchmark.measure("boolean depth=" + depth + " varargs",
+                    () -> evaluateVarargs(bool, state));
+            benchmark.measure("boolean depth=" + depth + " specialized",
+                    () -> bool.getValue(state));
+            benchmark.measure("boolean depth=" + depth + " compiled",
+                    () -> compiledBool.evaluate(state));
+        }
+    }
+
+    /*
+     * A complete binary tree of plus, minus and times over variables and
+     * constants.
+     */
+    private static Expression arithmetic(int depth, int position) {
+        if (depth == 0) {
+            return position % 2 == 0
+                    ? new Expression.Variable(Expression.SORT_INTEGER, VARIABLES[position % VARIABLES.length])
+                    : new Expression.Constant(Expression.SORT_INTEGER, (long) position % 7);
+        }
+        Operator<?> operator;
+        switch (depth % 3) {
+            case 0:
+                operator = BasicOperators.PLUS;
+                break;
+            case 1:
+                operator = BasicOperators.MINUS;
+                break;
+            default:
+                operator = BasicOperators.TIMES;
+        }
+        return operator.create(new Expression[]{
+            arithmetic(depth - 1, 2 * position),
+            arithmetic(depth - 1, 2 * position + 1)
+        }, true);
+    }
+
+    /*
+     * A complete binary tree of conjunctions and disjunctions over negated
+     * and plain comparisons.
+     */
+    private static Expression bool(int depth, int position) {
+        if (depth == 0) {
+            BooleanFormula comparison = (BooleanFormula) BasicOperators.LESS_THAN.create(new Expression[]{
+                arithmetic(1, position),
+                new Expression.Constant(Expression.SORT_INTEGER, (long) position % 5)
+            }, true);
+            return position % 3 == 0 ? BooleanFormula.not(comparison) : comparison;
+        }
+        Operator<?> operator = depth % 2 == 0 ? BasicOperators.AND : BasicOperators.OR;
+        return operator.create(new Expression[]{
+            bool(depth - 1, 2 * position),
+            bool(depth - 1, 2 * position + 1)
+        }, true);
+    }
+
+    /*
+     * Evaluates the expression with an array of argument values for every
+     * function.
+     */
+    private static Object evaluateVarargs(Expression expression, State state) {
+        if (expression instanceof Expression.Function) {
+            Expression.Function function = (Expression.Function) expression;
+            Expression[] args = function.getArgs();
+            Object[] argValues = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                argValues[i] = evaluateVarargs(args[i], state);
+                if (argValues[i] == null) {
+                    throw new IllegalArgumentException("One of the arguments has no value.");
+                }
+            }
+            return function.getInterpretation().apply(argValues);
+        } else {
+            return expression.getValue(state);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package vvhile.benchmark;
+
+import java.util.Objects;
+import java.util.Random;
+import vvhile.basic.language.BasicRuleSet;
+import vvhile.basic.language.IncrementalCompiler;
+import vvhile.basic.language.ProgramGenerator;
+import vvhile.frontend.ParseException;
+import vvhile.frontend.Pipeline;
+import vvhile.intrep.ASTElement;
+import vvhile.intrep.Statement;
+
+/**
+ * Edits programs with the incremental compiler and checks after every edit
+ * that the result is the same as compiling the edited source from scratch:
+ * either both yield the same statement or both reject the source.
+ *
+ * The programs are generated by a program generator and edited at random
+ * positions. Most edits keep the program valid, e.g. inserting a space or a
+ * digit, so that long sequences of edits reuse the block structure of the
+ * previous compilations. An edit that makes the program invalid is undone by
+ * the next one. The number of programs and the number of edits per program are
+ * given by the system properties check.programs and check.edits. The same
+ * properties always yield the same edits. The check prints one line per
+ * disagreement and exits with status 1 if there is any.
+ *
+ * @author markus
+ */
+public class IncrementalCompilerCheck {
+
+    // inserted texts, the first ones keep most programs valid
+    private static final String[] INSERTIONS = {
+        " ", " ", " ", "1", "1", "\n", ";", "}", "{", "(", ")", "V1", " + 3", "skip;", " X := 2; ",
+        "while", "if (V0 > 1) { skip } else { V2 := 1 };", "while (V3 > 0) { V3 := V3 - 1 };"
+    };
+    // seed of the generated programs and the edits
+    private static final long SEED = 42;
+    // number of statements of a generated program
+    private static final int SIZE = 40;
+
+    private static final Pipeline PIPELINE = new Pipeline(new BasicRuleSet(), Pipeline.Mode.SYNCHRONOUS);
+
+    private static int edits;
+    private static int disagreements;
+
+    public static void main(String[] args) {
+        // an edit right behind a block after an edit inside of it
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        String source = "while (X < 3) { X := 1 }; Y := 2";
+        check(source, () -> compiler.compile(source));
+        edit(compiler, source.indexOf('1') + 1, 0, "1");
+        edit(compiler, compiler.getSource().indexOf('}') + 1, 0, " ");
+
+        Random random = new Random(SEED);
+        int programs = Integer.getInteger("check.programs", 30);
+        int editsPerProgram = Integer.getInteger("check.edits", 100);
+        for (int i = 0; i < programs; i++) {
+            IncrementalCompiler incremental = new IncrementalCompiler();
+            String program = new ProgramGenerator(SEED + i).generate(SIZE).getSource();
+            check(program, () -> incremental.compile(program));
+            for (int j = 0; j < editsPerProgram; j++) {
+                String before = incremental.getSource();
+                int offset = random.nextInt(before.length() + 1);
+                int length = random.nextInt(4) == 0 ? Math.min(random.nextInt(6), before.length() - offset) : 0;
+                if (!edit(incremental, offset, length, INSERTIONS[random.nextInt(INSERTIONS.length)])) {
+                    // undo the edit
+                    check(before, () -> incremental.update(before));
+                }
+            }
+        }
+        System.out.println(edits + " edits, " + disagreements + " disagreements");
+        System.exit(disagreements == 0 ? 0 : 1);
+    }
+
+    /*
+     * Applies an edit and checks the result. Returns false if the edited
+     * source is not a program.
+     */
+    private static boolean edit(IncrementalCompiler compiler, int offset, int length, String replacement) {
+        String source = compiler.getSource();
+        String edited = source.substring(0, offset) + replacement + source.substring(offset + length);
+        return check(edited, () -> compiler.update(offset, length, replacement));
+    }
+
+    /*
+     * Compiles the source incrementally and from scratch and compares the
+     * results. Returns false if the source is not a program.
+     */
+    private static boolean check(String source, Compilation compilation) {
+        edits++;
+        String expected = compile(source);
+        String actual;
+        try {
+            actual = String.valueOf(compilation.compile());
+        } catch (ParseException e) {
+            actual = null;
+        } catch (RuntimeException e) {
+            actual = e.toString();
+        }
+        if (!Objects.equals(expected, actual)) {
+            disagreements++;
+            System.out.println("Incremental compilation disagrees on: " + source.replace('\n', ' '));
+            System.out.println("    from scratch: " + expected);
+            System.out.println("    incremental:  " + actual);
+        }
+        return expected != null;
+    }
+
+    /*
+     * Compiles the source from scratch, null if it is not a program.
+     */
+    private static String compile(String source) {
+        try {
+            ASTElement root = PIPELINE.compile(source, BasicRuleSet.STM).getRoot();
+            return root instanceof Statement ? root.toString() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private interface Compilation {
+
+        Object compile();
+
+    }
+
+}
@@ -0,0 +1,229 @@
+package vvhile.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import vvhile.basic.language.BasicRuleSet;
+import vvhile.basic.language.ProgramGenerator;
+import vvhile.frontend.Grammar;
+import vvhile.frontend.ParseTree;
+import vvhile.frontend.ParseException;
+import vvhile.frontend.Parser;
+import vvhile.frontend.ParserGenerator;
+import vvhile.frontend.Scanner;
+import vvhile.frontend.Token;
+import vvhile.hoare.BooleanFormula;
+import vvhile.hoare.HoareProver;
+import vvhile.hoare.HoareTree;
+import vvhile.hoare.HoareTriple;
+import vvhile.intrep.ASTCompiler;
+import vvhile.intrep.Interpreter;
+import vvhile.intrep.State;
+import vvhile.intrep.Statement;
+import vvhile.theorem.NoProofFoundException;
+import vvhile.theorem.TheoremProver;
+import vvhile.util.BoundedBuffer;
+
+/**
+ * Measures every stage of the compilation and verification of a program:
+ * scanning, parsing, retranslation of the parse tree, AST compilation with and
+ * without a parse tree, the generation of the parsing table, execution, the
+ * construction of the Hoare tree, filling its black boxes and proving its
+ * obligations.
+ *
+ * Each stage is measured on its own. The input of a stage is computed once
+ * before the measurement and put into a buffer that is large enough to hold
+ * all of it, so a stage never waits for its predecessor. The output is read
+ * by the measuring thread. The stages still run in their own threads, so
+ * starting a thread is part of every measurement.
+ *
+ * The programs are generated by a program generator. Their sizes are given by
+ * the system property benchmark.sizes, a comma separated list of numbers of
+ * statements.
+ *
+ * @author markus
+ */
+public class PipelineBenchmark {
+
+    // loop invariant used for all black boxes
+    private static final String INVARIANT = "V0 >= 0";
+    // seed of the generated programs
+    private static final long SEED = 42;
+    // depth used for the theorem prover
+    private static final int PROOF_DEPTH = 1;
+    // capacity of the buffers the output of a stage is read from
+    private static final int BUFFER_SIZE = 32;
+
+    public static void main(String[] args) throws IOException {
+        Benchmark benchmark = Benchmark.fromSystemProperties();
+        // the stages report their progress on the standard output
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        TheoremProver theoremProver = theoremProver();
+        for (String size : System.getProperty("benchmark.sizes", "10,100,1000").split(",")) {
+            run(benchmark, Integer.parseInt(size.trim()), theoremProver);
+        }
+    }
+
+    private static void run(Benchmark benchmark, int size, TheoremProver theoremProver) throws IOException {
+        ProgramGenerator.Program program = new ProgramGenerator(SEED).generate(size);
+        String source = program.getSource();
+        String suffix = " size=" + size;
+
+        // compute the input of every stage once
+        List<Scanner.ScanObject> scanObjects = scan(source);
+        List<Parser.ParseObject> parseObjects = parse(scanObjects);
+        List<Parser.ParseObject> retranslated = retranslate(parseObjects);
+        Statement statement = compile(retranslated);
+        HoareTriple triple = new HoareTriple(
+                (BooleanFormula) Parser.parseExpression(program.getPreCondition()),
+                statement,
+                (BooleanFormula) Parser.parseExpression(program.getPostCondition())
+        );
+        HoareProver prover = new HoareProver();
+        HoareTree hoareTree = prover.buildHoareTree(triple);
+        List<BooleanFormula.BlackBox> blackBoxes = prover.getBlackBoxes();
+        BooleanFormula invariant = (BooleanFormula) Parser.parseExpression(INVARIANT);
+        List<BooleanFormula> obligations = fill(hoareTree, blackBoxes, invariant).getObligations();
+
+        benchmark.measure("Scanner.nextToken" + suffix, () -> {
+            try {
+                Scanner scanner = Scanner.getDefaultScanner(source);
+                int tokens = 0;
+                while (scanner.nextToken() != Token.EOF) {
+                    tokens++;
+                }
+                return tokens;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        benchmark.measure("Parser.parse" + suffix, () -> parse(scanObjects));
+        if (ParserGenerator.isAvailable()) {
+            benchmark.measure("RecursiveDescentParser.parse" + suffix, () -> {
+                List<Parser.ParseObject> result = new ArrayList<>();
+                ParserGenerator.newParser(new BasicRuleSet(), BasicRuleSet.STM)
+                        .parse(scanObjects.iterator()::next, result::add);
+                return result;
+            });
+        }
+        benchmark.measure("ParseTree.retranslate" + suffix, () -> retranslate(parseObjects));
+        benchmark.measure("ASTCompiler" + suffix, () -> compile(retranslated));
+        benchmark.measure("ASTCompiler.acceptParsed" + suffix, () -> {
+            // the fused mode compiles the parser output without a parse tree
+            ASTCompiler astCompiler = new ASTCompiler(new BasicRuleSet());
+            parseObjects.forEach(astCompiler::acceptParsed);
+            return astCompiler.getRoot();
+        });
+        benchmark.measure("Grammar.generateParsingTable" + suffix,
+                () -> Grammar.generateParsingTable(new BasicRuleSet(), BasicRuleSet.STM));
+        benchmark.measure("Statement.run small-step" + suffix,
+                () -> new Interpreter(Interpreter.Mode.SMALL_STEP).run(statement, new State()));
+        benchmark.measure("Statement.run big-step" + suffix,
+                () -> new Interpreter(Interpreter.Mode.BIG_STEP).run(statement, new State()));
+        benchmark.measure("HoareProver.buildHoareTree" + suffix,
+                () -> new HoareProver().buildHoareTree(triple));
+        benchmark.measure("HoareTree.fillBlackBox" + suffix,
+                () -> fill(hoareTree, blackBoxes, invariant));
+        if (theoremProver == null) {
+            return;
+        }
+        benchmark.measure("TheoremProver.prove" + suffix, () -> {
+            int proven = 0;
+            for (BooleanFormula obligation : obligations) {
+                try {
+                    if (theoremProver.prove(obligation, PROOF_DEPTH)) {
+                        proven++;
+                    }
+                } catch (NoProofFoundException e) {
+                    // most obligations need more than the simple rules
+                }
+            }
+            return proven;
+        });
+    }
+
+    private static List<Scanner.ScanObject> scan(String source) throws IOException {
+        List<Scanner.ScanObject> result = new ArrayList<>();
+        Scanner scanner = Scanner.getDefaultScanner(source);
+        BoundedBuffer<Scanner.ScanObject> buffer = new BoundedBuffer<>(BUFFER_SIZE);
+        scanner.startScan(buffer);
+        Scanner.ScanObject scanObject;
+        do {
+            scanObject = buffer.get();
+            result.add(scanObject);
+        } while (scanObject.getToken() != Token.EOF);
+        scanner.join();
+        return result;
+    }
+
+    private static List<Parser.ParseObject> parse(List<Scanner.ScanObject> scanObjects) {
+        Parser parser = new Parser(filled(scanObjects), new BasicRuleSet(), BasicRuleSet.STM);
+        BoundedBuffer<Parser.ParseObject> buffer = new BoundedBuffer<>(BUFFER_SIZE);
+        parser.startParsing(BasicRuleSet.STM, buffer);
+        List<Parser.ParseObject> result = drain(buffer);
+        parser.join();
+        return result;
+    }
+
+    private static List<Parser.ParseObject> retranslate(List<Parser.ParseObject> parseObjects) {
+        ParseTree parseTree = new ParseTree(filled(parseObjects));
+        BoundedBuffer<Parser.ParseObject> buffer = new BoundedBuffer<>(BUFFER_SIZE);
+        parseTree.startRetranslation(buffer);
+        List<Parser.ParseObject> result = drain(buffer);
+        parseTree.join();
+        return result;
+    }
+
+    private static Statement compile(List<Parser.ParseObject> parseObjects) {
+        ASTCompiler astCompiler = new ASTCompiler(filled(parseObjects), new BasicRuleSet());
+        astCompiler.startCompilation(new BoundedBuffer<>(1));
+        astCompiler.join();
+        return (Statement) astCompiler.getRoot();
+    }
+
+    /*
+     * The theorem prover parses its rules when it is created. If one of them
+     * cannot be parsed, the theorem prover is skipped.
+     */
+    private static TheoremProver theoremProver() {
+        try {
+            return new TheoremProver();
+        } catch (ParseException e) {
+            System.err.println("TheoremProver.prove skipped: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static HoareTree fill(HoareTree hoareTree, List<BooleanFormula.BlackBox> blackBoxes,
+            BooleanFormula invariant) {
+        for (BooleanFormula.BlackBox blackBox : blackBoxes) {
+            hoareTree = hoareTree.fillBlackBox(blackBox, invariant);
+        }
+        return hoareTree;
+    }
+
+    /*
+     * A buffer that already contains all the given objects.
+     */
+    private static <T> BoundedBuffer<T> filled(List<? extends T> objects) {
+        BoundedBuffer<T> buffer = new BoundedBuffer<>(objects.size());
+        objects.forEach(buffer::put);
+        return buffer;
+    }
+
+    /*
+     * Removes all objects from a buffer until Token.EOF arrives.
+     */
+    private static List<Parser.ParseObject> drain(BoundedBuffer<Parser.ParseObject> buffer) {
+        List<Parser.ParseObject> result = new ArrayList<>();
+        Parser.ParseObject parseObject;
+        do {
+            parseObject = buffer.get();
+            result.add(parseObject);
+        } while (parseObject != Token.EOF);
+        return result;
+    }
+
+}
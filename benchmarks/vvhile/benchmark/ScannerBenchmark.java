@@ -0,0 +1,92 @@
+package vvhile.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import vvhile.basic.language.BasicRuleSet;
+import vvhile.basic.language.ProgramGenerator;
+import vvhile.frontend.Scanner;
+import vvhile.frontend.SourceFile;
+import vvhile.frontend.Token;
+
+/**
+ * Measures the throughput of the scanner on large inputs. The input consists
+ * of generated programs that are concatenated until the input has the
+ * requested size. The sizes are given by the system property
+ * benchmark.megabytes, a comma separated list of numbers of million
+ * characters.
+ *
+ * Every measurement creates a scanner and reads all tokens, so the
+ * construction of the automaton is part of it. The input is read from a
+ * string, from a file mapped into memory and from an input stream.
+ *
+ * @author markus
+ */
+public class ScannerBenchmark {
+
+    // number of statements of every generated program
+    private static final int PROGRAM_SIZE = 200;
+    // the terminators of the default scanner
+    private static final List<Integer> TERMINATORS = "~;:(){}<=>+-*/&|^?.,".chars().boxed().toList();
+
+    public static void main(String[] args) throws IOException {
+        Benchmark benchmark = Benchmark.fromSystemProperties();
+        for (String size : System.getProperty("benchmark.megabytes", "1,4").split(",")) {
+            int characters = Integer.parseInt(size.trim()) * 1_000_000;
+            String source = source(characters);
+            Path file = Files.createTempFile("scanner", ".while");
+            file.toFile().deleteOnExit();
+            Files.writeString(file, source);
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+            String suffix = " characters=" + source.length();
+
+            report(source, benchmark.measure("Scanner.nextToken string" + suffix,
+                    () -> scan(Scanner.getDefaultScanner(source))));
+            report(source, benchmark.measure("Scanner.nextToken mapped file" + suffix, () -> {
+                try {
+                    return scan(Scanner.getDefaultScanner(SourceFile.map(file)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            report(source, benchmark.measure("Scanner.nextToken input stream" + suffix, () -> {
+                try {
+                    Scanner scanner = new Scanner(new ByteArrayInputStream(bytes), new BasicRuleSet());
+                    scanner.addTerminator(TERMINATORS);
+                    return scan(scanner);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+    }
+
+    private static void report(String source, Benchmark.Result result) {
+        System.out.printf("    %.1f MB/s%n", source.length() / (result.getMean() / 1e3));
+    }
+
+    private static String source(int characters) {
+        StringBuilder builder = new StringBuilder();
+        for (long seed = 0; builder.length() < characters; seed++) {
+            builder.append(new ProgramGenerator(seed).generate(PROGRAM_SIZE).getSource()).append(";\n");
+        }
+        return builder.toString();
+    }
+
+    private static int scan(Scanner scanner) {
+        try {
+            int tokens = 0;
+            while (scanner.nextToken() != Token.EOF) {
+                tokens++;
+            }
+            return tokens;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+/**
+ * The benchmark package contains micro benchmarks for the parts of this
+ * framework where the processing time is spent. Every benchmark is a class
+ * with a main method that prints one line per measurement. The checks, e.g.
+ * EngineCheck, compare different implementations of the same stage and exit
+ * with status 1 if they disagree. The sources live in their own source root,
+ * next to the framework, and only need the framework on the class path, e.g.
+ * <pre>
+ * javac -d out $(find vvhile benchmarks -name '*.java')
+ * java -cp out vvhile.benchmark.ExpressionBenchmark
+ * </pre>
+ */
+package vvhile.benchmark;
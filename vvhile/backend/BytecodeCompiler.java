@@ -0,0 +1,219 @@
+package vvhile.backend;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import vvhile.intrep.Expression;
+import vvhile.intrep.Statement;
+import vvhile.util.InMemoryCompiler;
+
+/**
+ * The bytecode compiler translates a statement into a class of the Java virtual
+ * machine. Every variable of the statement becomes a local variable of the
+ * generated run()-method, every while-statement becomes a while-loop and every
+ * if-statement becomes an if-statement. Expressions are evaluated by calling
+ * the operators of the functions directly. Hence, no configurations or
+ * intermediate statements are created while the program runs.
+ *
+ * Compiling a statement takes some time since the Java compiler is invoked.
+ * It pays off for programs that run for a long time. If the statement contains
+ * parts that cannot be compiled, e.g. quantifiers, or if there is no Java
+ * compiler available, the resulting program runs the statement with the
+ * big-step interpreter.
+ *
+ * @author markus
+ */
+public class BytecodeCompiler {
+
+    /**
+     * The package of all generated classes.
+     */
+    public static final String PACKAGE = "vvhile.backend.generated";
+
+    // used to give every generated class a unique name
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final InMemoryCompiler compiler;
+
+    /**
+     * Creates a new bytecode compiler.
+     */
+    public BytecodeCompiler() {
+        this.compiler = new InMemoryCompiler();
+    }
+
+    /**
+     * Compiles the given statement. The resulting program can be run in any
+     * state, as often as needed.
+     *
+     * @param statement a statement
+     * @return the compiled program
+     */
+    public CompiledProgram compile(Statement statement) {
+        if (!InMemoryCompiler.isAvailable()) {
+            return new CompiledProgram.Interpreted(statement);
+        }
+        String className = "Program" + COUNTER.incrementAndGet();
+        try {
+            Generator generator = new Generator();
+            String source = generator.generate(className, statement);
+            Class<?> generated = compiler.compile(PACKAGE + "." + className, source);
+            return (CompiledProgram) generated.getConstructor(Object[].class)
+                    .newInstance((Object) generator.constants.toArray());
+        } catch (UnsupportedOperationException | IllegalStateException | ReflectiveOperationException e) {
+            // Either the statement contains unsupported parts or the generated
+            // class is too large for the virtual machine. Run it as usual.
+            return new CompiledProgram.Interpreted(statement);
+        }
+    }
+
+    /*
+     * The generator creates the source code of a class for one statement. It
+     * collects all objects the code refers to in a list which is passed to the
+     * constructor of the generated class.
+     */
+    private static class Generator {
+
+        private final List<Object> constants = new ArrayList<>();
+        // every object is only stored once (operators and constant values)
+        private final Map<Object, Integer> indices = new IdentityHashMap<>();
+        // variables are identified by their name, just like in a state
+        private final Map<Expression.Variable, Integer> variables = new LinkedHashMap<>();
+        private final StringBuilder declarations = new StringBuilder();
+        private final StringBuilder body = new StringBuilder();
+
+        String generate(String className, Statement statement) {
+            statement(statement, 3);
+            StringBuilder source = new StringBuilder();
+            source.append("package ").append(PACKAGE).append(";\n\n")
+                    .append("import vvhile.intrep.Expression;\n")
+                    .append("import vvhile.intrep.Operator;\n")
+                    .append("import vvhile.intrep.State;\n\n")
+                    .append("public final class ").append(className)
+                    .append(" extends vvhile.backend.CompiledProgram {\n\n")
+                    .append("    public ").append(className).append("(Object[] constants) {\n")
+                    .append("        super(constants);\n")
+                    .append("    }\n\n")
+                    .append("    @Override\n")
+                    .append("    public State run(State state) {\n")
+                    .append(declarations);
+            // read the variables from the state...
+            variables.values().forEach(i -> source
+                    .append("        Object v").append(i).append(" = state.getValueFor(x").append(i).append(");\n")
+                    .append("        boolean w").append(i).append(" = false;\n"));
+            source.append("        try {\n")
+                    .append(body)
+                    .append("        } finally {\n");
+            // ...and write back those that were assigned, even if the program
+            // fails, so the state is the same as after an interpreted run
+            variables.values().forEach(i -> source
+                    .append("            if (w").append(i).append(") {\n")
+                    .append("                state.substitute(v").append(i).append(", x").append(i).append(");\n")
+                    .append("            }\n"));
+            return source.append("        }\n")
+                    .append("        return state;\n")
+                    .append("    }\n\n")
+                    .append("}\n").toString();
+        }
+
+        private void statement(Statement statement, int indent) {
+            if (statement instanceof Statement.Assignment) {
+                Statement.Assignment assignment = (Statement.Assignment) statement;
+                int i = variable(assignment.getVariable());
+                line(indent, "v" + i + " = " + expression(assignment.getExpression()) + ";");
+                line(indent, "w" + i + " = true;");
+            } else if (statement instanceof Statement.Skip) {
+                line(indent, "// skip");
+            } else if (statement instanceof Statement.Composition) {
+                Statement.Composition composition = (Statement.Composition) statement;
+                statement(composition.getFirstStatement(), indent);
+                statement(composition.getSecondStatement(), indent);
+            } else if (statement instanceof Statement.If) {
+                Statement.If ite = (Statement.If) statement;
+                line(indent, "if (condition(" + expression(ite.getCondition()) + ")) {");
+                statement(ite.getIfStatement(), indent + 1);
+                line(indent, "} else {");
+                statement(ite.getElseStatement(), indent + 1);
+                line(indent, "}");
+            } else if (statement instanceof Statement.While) {
+                Statement.While whl = (Statement.While) statement;
+                line(indent, "while (condition(" + expression(whl.getCondition()) + ")) {");
+                statement(whl.getStatement(), indent + 1);
+                line(indent, "}");
+            } else if (statement instanceof Statement.BlackBox) {
+                line(indent, "fail(\"You can't run a blackbox.\");");
+            } else {
+                throw new UnsupportedOperationException(
+                        "Dont know how to compile instance of " + statement.getClass());
+            }
+        }
+
+        private String expression(Expression expression) {
+            if (expression instanceof Expression.Constant) {
+                Object value = expression.getValue(null);
+                if (!indices.containsKey(value)) {
+                    declare("Object", "k", value);
+                }
+                return "k" + indices.get(value);
+            } else if (expression instanceof Expression.Variable) {
+                return "v" + variable((Expression.Variable) expression);
+            } else if (expression instanceof Expression.Function) {
+                Expression.Function function = (Expression.Function) expression;
+                Object operator = function.getInterpretation();
+                if (!indices.containsKey(operator)) {
+                    declare("Operator", "op", operator);
+                }
+                StringBuilder call = new StringBuilder("op" + indices.get(operator) + ".apply(");
+                Expression[] args = function.getArgs();
+                for (int i = 0; i < args.length; i++) {
+                    call.append(i == 0 ? "" : ", ").append("argument(").append(expression(args[i])).append(')');
+                }
+                return call.append(')').toString();
+            } else {
+                throw new UnsupportedOperationException(
+                        "Dont know how to compile instance of " + expression.getClass());
+            }
+        }
+
+        /*
+         * Returns the index of the variable. The first occurrence declares it.
+         */
+        private int variable(Expression.Variable variable) {
+            Integer i = variables.get(variable);
+            if (i == null) {
+                i = constants.size();
+                constants.add(variable);
+                variables.put(variable, i);
+                line(2, "final Expression.Variable x" + i + " = (Expression.Variable) constants[" + i + "];", declarations);
+            }
+            return i;
+        }
+
+        /*
+         * Adds an object to the constants and declares a local variable for it.
+         */
+        private void declare(String type, String prefix, Object object) {
+            int i = constants.size();
+            constants.add(object);
+            indices.put(object, i);
+            line(2, "final " + type + " " + prefix + i + " = ("
+                    + type + ") constants[" + i + "];", declarations);
+        }
+
+        private void line(int indent, String line) {
+            line(indent, line, body);
+        }
+
+        private void line(int indent, String line, StringBuilder builder) {
+            for (int i = 0; i < indent; i++) {
+                builder.append("    ");
+            }
+            builder.append(line).append('\n');
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+package vvhile.backend;
+
+import vvhile.intrep.Expression;
+import vvhile.intrep.Interpreter;
+import vvhile.intrep.State;
+import vvhile.intrep.Statement;
+
+/**
+ * A compiled program is the result of the bytecode compiler. It executes a
+ * statement completely in a given state. The classes generated by the compiler
+ * extend this class. The static methods are used by the generated code, so that
+ * the compiled program behaves exactly like the interpreted one.
+ *
+ * @author markus
+ */
+public abstract class CompiledProgram {
+
+    // constants, variables and operators referred to by the generated code
+    protected final Object[] constants;
+
+    /**
+     * Creates a new compiled program.
+     *
+     * @param constants all objects the generated code refers to
+     */
+    protected CompiledProgram(Object[] constants) {
+        this.constants = constants;
+    }
+
+    /**
+     * Executes the program in the given state until it terminates.
+     *
+     * @param state a state
+     * @return the resulting state
+     */
+    public abstract State run(State state);
+
+    /**
+     * Checks the value of a condition the same way the if-statement does.
+     *
+     * @param value value of a condition
+     * @return the value as a boolean
+     */
+    protected static boolean condition(Object value) {
+        if (value == null) {
+            throw new RuntimeException("Condition cannot be evaluated.");
+        } else if (!(value instanceof Boolean)) {
+            throw new RuntimeException("Condition is not of sort " + Expression.SORT_BOOLEAN + ".");
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * Checks the value of an argument of a function the same way the function
+     * expression does.
+     *
+     * @param value value of an argument
+     * @return the value
+     */
+    protected static Object argument(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("One of the arguments has no value.");
+        }
+        return value;
+    }
+
+    /**
+     * Aborts the execution.
+     *
+     * @param message the reason
+     */
+    protected static void fail(String message) {
+        throw new UnsupportedOperationException(message);
+    }
+
+    /*
+     * If a statement cannot be compiled it is still run, but by the big-step
+     * interpreter.
+     */
+    static class Interpreted extends CompiledProgram {
+
+        private final Statement statement;
+
+        Interpreted(Statement statement) {
+            super(new Object[0]);
+            this.statement = statement;
+        }
+
+        @Override
+        public State run(State state) {
+            return new Interpreter().run(statement, state);
+        }
+
+    }
+
+}
@@ -0,0 +1,7 @@
+/**
+ * The backend turns the abstract syntax tree of a program into code of the
+ * Java virtual machine. A compiled program does the same as running the
+ * statement step by step, but loops become actual loops of the virtual machine
+ * that are optimized by its just-in-time compiler.
+ */
+package vvhile.backend;
@@ -4,7 +4,10 @@ import vvhile.intrep.Operator;
 import java.math.BigInteger;
 
 /**
- * This is a collection of all operators used by the basic rule set.
+ * This is a collection of all operators used by the basic rule set. The
+ * integer operators work on Longs and switch to BigIntegers only if a result
+ * does not fit into a long, see Integers. Their evaluate-methods still return
+ * BigIntegers, only expressions get the Longs, see Operator.apply().
  *
  * @author markus
  */
@@ -34,65 +37,92 @@ public final class BasicOperators {
     /**
      * Numerical plus.
      */
-    public static Operator<BigInteger> PLUS = Operator.createBinaryOperator(
-            BigInteger.class, BigInteger.class, BigInteger.class, (BigInteger a, BigInteger b) -> a.add(b), "+"
-    );
+    public static Operator<BigInteger> PLUS = new IntegerOperator.Binary<BigInteger>(BigInteger.class, "+") {
+        @Override
+        public Number apply(Object a, Object b) {
+            return Integers.add(a, b);
+        }
+    };
     
     /**
      * Numerical minus.
      */
-    public static Operator<BigInteger> MINUS = Operator.createBinaryOperator(
-            BigInteger.class, BigInteger.class, BigInteger.class, (BigInteger a, BigInteger b) -> a.subtract(b), "-"
-    );
+    public static Operator<BigInteger> MINUS = new IntegerOperator.Binary<BigInteger>(BigInteger.class, "-") {
+        @Override
+        public Number apply(Object a, Object b) {
+            return Integers.subtract(a, b);
+        }
+    };
     
     /**
      * Numerical times (Product).
      */
-    public static Operator<BigInteger> TIMES = Operator.createBinaryOperator(
-            BigInteger.class, BigInteger.class, BigInteger.class, (BigInteger a, BigInteger b) -> a.multiply(b), "⋅"
-    );
+    public static Operator<BigInteger> TIMES = new IntegerOperator.Binary<BigInteger>(BigInteger.class, "⋅") {
+        @Override
+        public Number apply(Object a, Object b) {
+            return Integers.multiply(a, b);
+        }
+    };
     
     /**
      * Numerical long division.
      */
-    public static Operator<BigInteger> DIV = Operator.createBinaryOperator(
-            BigInteger.class, BigInteger.class, BigInteger.class, (BigInteger a, BigInteger b) -> a.divide(b), "/"
-    );
+    public static Operator<BigInteger> DIV = new IntegerOperator.Binary<BigInteger>(BigInteger.class, "/") {
+        @Override
+        public Number apply(Object a, Object b) {
+            return Integers.divide(a, b);
+        }
+    };
     
     /**
      * Numerical negation (Additive inverse).
      */
-    public static Operator<BigInteger> NEGATE = Operator.createUnaryOperator(
-            BigInteger.class, BigInteger.class, (BigInteger a) -> a.negate(), "-"
-    );
+    public static Operator<BigInteger> NEGATE = new IntegerOperator.Unary<BigInteger>(BigInteger.class, "-") {
+        @Override
+        public Number apply(Object a) {
+            return Integers.negate(a);
+        }
+    };
 
     /**
      * Strict inequation: less than.
      */
-    public static Operator<Boolean> LESS_THAN = Operator.createBinaryOperator(
-            BigInteger.class, BigInteger.class, Boolean.class, (BigInteger a, BigInteger b) -> a.compareTo(b) < 0, "<"
-    );
+    public static Operator<Boolean> LESS_THAN = new IntegerOperator.Binary<Boolean>(Boolean.class, "<") {
+        @Override
+        public Boolean apply(Object a, Object b) {
+            return Integers.compare(a, b) < 0;
+        }
+    };
     
     /**
      * Inequation: less or equal.
      */
-    public static Operator<Boolean> LESS_EQUAL = Operator.createBinaryOperator(
-            BigInteger.class, BigInteger.class, Boolean.class, (BigInteger a, BigInteger b) -> a.compareTo(b) <= 0, "≤"
-    );
+    public static Operator<Boolean> LESS_EQUAL = new IntegerOperator.Binary<Boolean>(Boolean.class, "≤") {
+        @Override
+        public Boolean apply(Object a, Object b) {
+            return Integers.compare(a, b) <= 0;
+        }
+    };
     
     /**
      * Inequation: greater or equal.
      */
-    public static Operator<Boolean> GREATER_EQUAL = Operator.createBinaryOperator(
-            BigInteger.class, BigInteger.class, Boolean.class, (BigInteger a, BigInteger b) -> a.compareTo(b) >= 0, "≥"
-    );
+    public static Operator<Boolean> GREATER_EQUAL = new IntegerOperator.Binary<Boolean>(Boolean.class, "≥") {
+        @Override
+        public Boolean apply(Object a, Object b) {
+            return Integers.compare(a, b) >= 0;
+        }
+    };
     
     /**
      * Strickt inequation: greater than.
      */
-    public static Operator<Boolean> GREATER_THAN = Operator.createBinaryOperator(
-            BigInteger.class, BigInteger.class, Boolean.class, (BigInteger a, BigInteger b) -> a.compareTo(b) > 0, ">"
-    );
+    public static Operator<Boolean> GREATER_THAN = new IntegerOperator.Binary<Boolean>(Boolean.class, ">") {
+        @Override
+        public Boolean apply(Object a, Object b) {
+            return Integers.compare(a, b) > 0;
+        }
+    };
     
     /**
      * Logical implication.
@@ -112,7 +142,7 @@ public final class BasicOperators {
      * Equality.
      */
     public static Operator EQUALS = Operator.createBinaryOperator(
-            Object.class, Object.class, Boolean.class, (a, b) -> a.equals(b), "="
+            Object.class, Object.class, Boolean.class, (a, b) -> Integers.equal(a, b), "="
     );
 
     private BasicOperators() {
@@ -0,0 +1,432 @@
+package vvhile.basic.language;
+
+import java.util.ArrayList;
+import java.util.List;
+import static vvhile.basic.language.BasicTokens.ELSE;
+import static vvhile.basic.language.BasicTokens.IF;
+import static vvhile.basic.language.BasicTokens.WHILE;
+import vvhile.frontend.NonTerminal;
+import vvhile.frontend.ParseException;
+import vvhile.frontend.Pipeline;
+import vvhile.frontend.Token;
+import vvhile.hoare.BooleanFormula;
+import vvhile.intrep.ASTElement;
+import vvhile.intrep.Statement;
+
+/**
+ * An incremental compiler compiles a program of the basic rule set that is
+ * edited step by step, e.g. in an editor. After an edit only the statements
+ * that are touched by the edit are scanned and parsed again. All other
+ * statements, and the compositions following the edit, are taken from the
+ * previous compilation.
+ *
+ * To do so, the compiler remembers the block structure of the program: a block
+ * is a sequence of statements separated by semicolons, and if- and
+ * while-statements contain blocks enclosed in curly brackets. An edit that
+ * lies inside a block of an if- or while-statement only recompiles that block,
+ * the condition is kept. An edit that changes the structure, e.g. removes a
+ * semicolon or a bracket, recompiles the statements around it. If that fails,
+ * the enclosing statement is recompiled, up to the whole program.
+ *
+ * Since statements are compiled on their own, the positions in the messages
+ * of a parse exception refer to the recompiled statement. A compiler must not
+ * be used by several threads at the same time.
+ *
+ * @author markus
+ */
+public class IncrementalCompiler {
+
+    private final Pipeline pipeline;
+
+    private String source;
+    // the block structure of the source, null if the last compilation failed
+    private Block root;
+    private Statement statement;
+    // number of characters passed to the pipeline during the last compilation
+    private int recompiled;
+
+    /**
+     * Creates a new incremental compiler for the basic rule set.
+     */
+    public IncrementalCompiler() {
+        this.pipeline = new Pipeline(new BasicRuleSet(), Pipeline.Mode.FUSED);
+        this.source = "";
+    }
+
+    /**
+     * Compiles the given program from scratch.
+     *
+     * @param source source code of a program
+     * @return the compiled program
+     * @throws ParseException if the source is not a program
+     */
+    public Statement compile(String source) {
+        this.source = source;
+        this.recompiled = 0;
+        this.root = null;
+        this.statement = null;
+        try {
+            root = block(source, 0, source.length());
+        } catch (StructureException e) {
+            // The parser knows best what is wrong
+            Pipeline.Result result = compile(source, BasicRuleSet.STM);
+            if (result.getRoot() instanceof Statement) {
+                // The program is fine, but cannot be compiled incrementally
+                return statement = (Statement) result.getRoot();
+            }
+            throw new ParseException("The given String does not represent a program", result.getMessages());
+        }
+        return statement = root.nodes.get(0).tail;
+    }
+
+    /**
+     * Replaces a part of the current source and compiles the result. Only the
+     * statements touched by the edit are compiled again.
+     *
+     * @param offset position of the first replaced character
+     * @param length number of replaced characters
+     * @param replacement the new text
+     * @return the compiled program
+     * @throws ParseException if the edited source is not a program
+     */
+    public Statement update(int offset, int length, String replacement) {
+        if (offset < 0 || length < 0 || offset + length > source.length()) {
+            throw new IndexOutOfBoundsException("The edit lies outside of the source.");
+        }
+        String edited = source.substring(0, offset) + replacement + source.substring(offset + length);
+        if (root == null) {
+            return compile(edited);
+        }
+        source = edited;
+        recompiled = 0;
+        try {
+            if (update(root, 0, offset, length, replacement.length() - length)) {
+                return statement = root.nodes.get(0).tail;
+            }
+        } catch (RuntimeException e) {
+            // the block structure may be half updated, start from scratch
+            // the next time
+            root = null;
+            statement = null;
+            throw e;
+        }
+        return compile(edited);
+    }
+
+    /**
+     * Replaces the current source by the given one and compiles it. The
+     * common beginning and end of both sources are found first, so that only
+     * the statements in between are compiled again.
+     *
+     * @param edited the new source code
+     * @return the compiled program
+     * @throws ParseException if the source is not a program
+     */
+    public Statement update(String edited) {
+        int prefix = 0;
+        int max = Math.min(source.length(), edited.length());
+        while (prefix < max && source.charAt(prefix) == edited.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && source.charAt(source.length() - 1 - suffix) == edited.charAt(edited.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return update(prefix, source.length() - prefix - suffix,
+                edited.substring(prefix, edited.length() - suffix));
+    }
+
+    /**
+     * @return the current source code
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the compiled program or null if the last compilation failed
+     */
+    public Statement getStatement() {
+        return statement;
+    }
+
+    /**
+     * @return number of characters that were scanned and parsed during the
+     * last compilation
+     */
+    public int getRecompiledCharacters() {
+        return recompiled;
+    }
+
+    /*
+     * Applies an edit to a block starting at the given position. The edit is
+     * given in coordinates of the old source, the delta is the change of its
+     * length. Returns false if the edit changes the structure beyond the
+     * block.
+     */
+    private boolean update(Block block, int blockStart, int offset, int length, int delta) {
+        // find the statements touched by the edit
+        int first = -1;
+        int last = -1;
+        int firstStart = 0;
+        int lastEnd = 0;
+        int start = blockStart;
+        for (int k = 0; k < block.nodes.size(); k++) {
+            int end = start + block.nodes.get(k).length;
+            if (end >= offset && start <= offset + length) {
+                if (first < 0) {
+                    first = k;
+                    firstStart = start;
+                }
+                last = k;
+                lastEnd = end;
+            }
+            start = end + 1;
+        }
+        if (first < 0) {
+            return false;
+        }
+        Node node = block.nodes.get(first);
+        if (first == last && node.bodies != null) {
+            // the edit may lie inside one of the blocks of the statement
+            for (int k = 0; k < node.bodies.length; k++) {
+                int bodyStart = firstStart + node.bodyOffsets[k];
+                if (bodyStart <= offset && offset + length <= bodyStart + node.bodies[k].length) {
+                    // the length of the block is updated by the recursive call
+                    if (update(node.bodies[k], bodyStart, offset, length, delta)) {
+                        for (int l = k + 1; l < node.bodies.length; l++) {
+                            node.bodyOffsets[l] += delta;
+                        }
+                        node.length += delta;
+                        node.statement = node.bodies.length == 1
+                                ? new Statement.While(node.condition, node.bodies[0].statement())
+                                : new Statement.If(node.condition, node.bodies[0].statement(), node.bodies[1].statement());
+                        block.length += delta;
+                        compose(block, first);
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        // compile the touched statements again
+        Block replacement;
+        try {
+            replacement = block(source, firstStart, lastEnd + delta);
+        } catch (StructureException e) {
+            return false;
+        }
+        block.nodes.subList(first, last + 1).clear();
+        block.nodes.addAll(first, replacement.nodes);
+        block.length += delta;
+        compose(block, first + replacement.nodes.size() - 1);
+        return true;
+    }
+
+    /*
+     * Splits the text into statements separated by semicolons.
+     */
+    private Block block(String text, int start, int end) {
+        Block block = new Block();
+        block.length = end - start;
+        int depth = 0;
+        int nodeStart = start;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth < 0) {
+                throw new StructureException();
+            } else if (c == ';' && depth == 0) {
+                block.nodes.add(node(text, nodeStart, i));
+                nodeStart = i + 1;
+            }
+        }
+        if (depth != 0) {
+            throw new StructureException();
+        }
+        block.nodes.add(node(text, nodeStart, end));
+        compose(block, block.nodes.size() - 1);
+        return block;
+    }
+
+    /*
+     * Compiles one statement. If- and while-statements are split into their
+     * condition and their blocks.
+     */
+    private Node node(String text, int start, int end) {
+        Node node = new Node();
+        node.length = end - start;
+        int p = skipWhitespaces(text, start, end);
+        if (isKeyword(text, p, end, WHILE)) {
+            int open = text.indexOf('{', p);
+            int close = open < 0 || open >= end ? -1 : closing(text, open, end);
+            if (close > 0 && skipWhitespaces(text, close + 1, end) == end) {
+                BooleanFormula condition = condition(text, p + WHILE.getSymbol().length(), open);
+                if (condition != null) {
+                    node.condition = condition;
+                    node.bodies = new Block[]{block(text, open + 1, close)};
+                    node.bodyOffsets = new int[]{open + 1 - start};
+                    node.statement = new Statement.While(condition, node.bodies[0].statement());
+                    return node;
+                }
+            }
+        } else if (isKeyword(text, p, end, IF)) {
+            int open = text.indexOf('{', p);
+            int close = open < 0 || open >= end ? -1 : closing(text, open, end);
+            int elseStart = close < 0 ? end : skipWhitespaces(text, close + 1, end);
+            if (isKeyword(text, elseStart, end, ELSE)) {
+                int elseOpen = skipWhitespaces(text, elseStart + ELSE.getSymbol().length(), end);
+                int elseClose = elseOpen < end && text.charAt(elseOpen) == '{' ? closing(text, elseOpen, end) : -1;
+                BooleanFormula condition = condition(text, p + IF.getSymbol().length(), open);
+                if (elseClose > 0 && skipWhitespaces(text, elseClose + 1, end) == end && condition != null) {
+                    node.condition = condition;
+                    node.bodies = new Block[]{block(text, open + 1, close), block(text, elseOpen + 1, elseClose)};
+                    node.bodyOffsets = new int[]{open + 1 - start, elseOpen + 1 - start};
+                    node.statement = new Statement.If(condition,
+                            node.bodies[0].statement(), node.bodies[1].statement());
+                    return node;
+                }
+            }
+        }
+        // A simple statement. Anything unexpected is left to the parser.
+        Pipeline.Result result = compile(text.substring(start, end), BasicRuleSet.STM);
+        if (!(result.getRoot() instanceof Statement)) {
+            throw new ParseException("The given String does not represent a statement", result.getMessages());
+        }
+        node.statement = (Statement) result.getRoot();
+        return node;
+    }
+
+    /*
+     * Compiles the condition of an if- or while-statement. It must be enclosed
+     * in parentheses. Returns null if it is not.
+     */
+    private BooleanFormula condition(String text, int start, int end) {
+        int p = skipWhitespaces(text, start, end);
+        int q = end;
+        while (q > p && Character.isWhitespace(text.charAt(q - 1))) {
+            q--;
+        }
+        if (p >= q || text.charAt(p) != '(' || closingParenthesis(text, p, q) != q - 1) {
+            return null;
+        }
+        Pipeline.Result result = compile(text.substring(p, q), BasicRuleSet.EXPR);
+        if (!(result.getRoot() instanceof BooleanFormula)) {
+            throw new ParseException("The condition is not a boolean formula", result.getMessages());
+        }
+        return (BooleanFormula) result.getRoot();
+    }
+
+    private Pipeline.Result compile(String text, NonTerminal start) {
+        recompiled += text.length();
+        return pipeline.compile(text, start);
+    }
+
+    /*
+     * Composes the statements of the block from the given index to the first.
+     * The compositions after the index are kept.
+     */
+    private static void compose(Block block, int from) {
+        for (int k = from; k >= 0; k--) {
+            Node node = block.nodes.get(k);
+            node.tail = k == block.nodes.size() - 1
+                    ? node.statement
+                    : new Statement.Composition(node.statement, block.nodes.get(k + 1).tail);
+        }
+    }
+
+    private static int skipWhitespaces(String text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    /*
+     * A keyword must not be followed by a character of an identifier.
+     */
+    private static boolean isKeyword(String text, int start, int end, Token.Symbol keyword) {
+        String symbol = keyword.getSymbol();
+        int after = start + symbol.length();
+        return after <= end && text.startsWith(symbol, start)
+                && (after == end || Character.isWhitespace(text.charAt(after))
+                || text.charAt(after) == '(' || text.charAt(after) == '{');
+    }
+
+    /*
+     * Returns the position of the curly bracket closing the one at the given
+     * position, -1 if there is none.
+     */
+    private static int closing(String text, int open, int end) {
+        int depth = 0;
+        for (int i = open; i < end; i++) {
+            if (text.charAt(i) == '{') {
+                depth++;
+            } else if (text.charAt(i) == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int closingParenthesis(String text, int open, int end) {
+        int depth = 0;
+        for (int i = open; i < end; i++) {
+            if (text.charAt(i) == '(') {
+                depth++;
+            } else if (text.charAt(i) == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * A block is a sequence of statements separated by semicolons. Its length
+     * is the number of characters without the enclosing brackets.
+     */
+    private static class Block {
+
+        private final List<Node> nodes = new ArrayList<>();
+        private int length;
+
+        private Statement statement() {
+            return nodes.get(0).tail;
+        }
+
+    }
+
+    /*
+     * A node is a statement of a block. Its length is the number of characters
+     * between the surrounding semicolons.
+     */
+    private static class Node {
+
+        private int length;
+        private Statement statement;
+        // the composition of this statement and all following statements of the block
+        private Statement tail;
+        // the condition and the blocks of if- and while-statements, null otherwise
+        private BooleanFormula condition;
+        private Block[] bodies;
+        // position of the blocks relative to the start of the node
+        private int[] bodyOffsets;
+
+    }
+
+    /*
+     * Thrown if the brackets of a part of the source do not match.
+     */
+    private static class StructureException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        StructureException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package vvhile.basic.language;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import vvhile.intrep.Operator;
+
+/**
+ * An integer operator is an operator on integer arguments. Its arguments may
+ * be Longs or BigIntegers, see the class Integers. The sort of the arguments
+ * is still BigInteger, since that is the sort of all integers of the basic
+ * language.
+ *
+ * Unlike the operators created by Operator.createBinaryOperator() and
+ * Operator.createUnaryOperator(), integer operators do not go through a
+ * lambda expression and cast their arguments. Subclasses implement the
+ * apply-method for their number of arguments directly. It returns integers in
+ * canonical form and is used by the expressions. The evaluate-methods return
+ * BigIntegers, as the return class says.
+ *
+ * @author markus
+ * @param <T> the return type
+ */
+public abstract class IntegerOperator<T> extends Operator<T> {
+
+    private final Class<?>[] argClasses;
+    private final Class<?> returnClass;
+    private final String symbol;
+
+    private IntegerOperator(int arity, Class<?> returnClass, String symbol) {
+        this.argClasses = new Class<?>[arity];
+        Arrays.fill(argClasses, BigInteger.class);
+        this.returnClass = returnClass;
+        this.symbol = symbol;
+    }
+
+    @Override
+    public Class<?>[] getArgClasses() {
+        return argClasses.clone();
+    }
+
+    @Override
+    public Class<?> getReturnClass() {
+        return returnClass;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+
+    /*
+     * Integers in canonical form are returned as BigIntegers by the
+     * evaluate-methods.
+     */
+    @SuppressWarnings("unchecked")
+    private T result(Object value) {
+        return (T) (value instanceof Long ? Integers.toBigInteger(value) : value);
+    }
+
+    /**
+     * An integer operator with one argument.
+     *
+     * @param <T> the return type
+     */
+    public static abstract class Unary<T> extends IntegerOperator<T> {
+
+        /**
+         * Creates a new unary integer operator.
+         *
+         * @param returnClass class of the return value
+         * @param symbol string representation of the operator symbol
+         */
+        public Unary(Class<?> returnClass, String symbol) {
+            super(1, returnClass, symbol);
+        }
+
+        /**
+         * Applies the operator to an integer value.
+         *
+         * @param a a Long or a BigInteger, not null
+         * @return the operator value, integers in canonical form
+         */
+        @Override
+        public abstract Object apply(Object a);
+
+        @Override
+        public Object apply(Object... args) {
+            if (args.length != 1) {
+                throw new IllegalArgumentException("Wrong number of arguments.");
+            }
+            return apply(args[0]);
+        }
+
+        @Override
+        public T evaluate(Object a) {
+            if (a == null) {
+                return null;
+            }
+            return super.result(apply(a));
+        }
+
+        @Override
+        public T evaluate(Object... args) {
+            // Check the arguments
+            if (args.length != 1) {
+                throw new IllegalArgumentException("Wrong number of arguments.");
+            }
+            return evaluate(args[0]);
+        }
+
+    }
+
+    /**
+     * An integer operator with two arguments.
+     *
+     * @param <T> the return type
+     */
+    public static abstract class Binary<T> extends IntegerOperator<T> {
+
+        /**
+         * Creates a new binary integer operator.
+         *
+         * @param returnClass class of the return value
+         * @param symbol string representation of the operator symbol
+         */
+        public Binary(Class<?> returnClass, String symbol) {
+            super(2, returnClass, symbol);
+        }
+
+        /**
+         * Applies the operator to two integer values.
+         *
+         * @param a a Long or a BigInteger, not null
+         * @param b a Long or a BigInteger, not null
+         * @return the operator value, integers in canonical form
+         */
+        @Override
+        public abstract Object apply(Object a, Object b);
+
+        @Override
+        public Object apply(Object... args) {
+            if (args.length != 2) {
+                throw new IllegalArgumentException("Wrong number of arguments.");
+            }
+            return apply(args[0], args[1]);
+        }
+
+        @Override
+        public T evaluate(Object a, Object b) {
+            if (a == null || b == null) {
+                return null;
+            }
+            return super.result(apply(a, b));
+        }
+
+        @Override
+        public T evaluate(Object... args) {
+            // Check the arguments
+            if (args.length != 2) {
+                throw new IllegalArgumentException("Wrong number of arguments.");
+            }
+            return evaluate(args[0], args[1]);
+        }
+
+    }
+
+}
@@ -65,7 +65,7 @@ public class IntegerScanner implements Scanner.Subscanner {
          * @return the token as a constant
          */
         public Expression.Constant getConstant() {
-            return new Expression.Constant(Expression.SORT_INTEGER, value);
+            return new Expression.Constant(Expression.SORT_INTEGER, Integers.valueOf(value));
         }
 
         @Override
@@ -0,0 +1,178 @@
+package vvhile.basic.language;
+
+import java.math.BigInteger;
+
+/**
+ * Integer arithmetic of the basic language. Integers are arbitrarily large,
+ * but most of them fit into a long. Therefore every integer value is stored as
+ * a Long as long as it fits, and as a BigInteger only if it does not. All
+ * methods of this class accept both representations and return an integer in
+ * this canonical form. If the operation on longs overflows, the result is
+ * computed with BigIntegers instead.
+ *
+ * Since the representation is canonical, two integer values are equal if and
+ * only if their objects are equal.
+ *
+ * @author markus
+ */
+public final class Integers {
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private Integers() {
+    }
+
+    /**
+     * Converts a BigInteger into the canonical form.
+     *
+     * @param value a BigInteger
+     * @return a Long if the value fits into a long, the BigInteger otherwise
+     */
+    public static Number valueOf(BigInteger value) {
+        if (value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Converts an integer value of either representation into a BigInteger.
+     *
+     * @param value a Long or a BigInteger
+     * @return the value as BigInteger
+     */
+    public static BigInteger toBigInteger(Object value) {
+        if (value instanceof BigInteger) {
+            return (BigInteger) value;
+        } else {
+            return BigInteger.valueOf((Long) value);
+        }
+    }
+
+    /**
+     * @param value an object
+     * @return true if the object is an integer value of either representation
+     */
+    public static boolean isInteger(Object value) {
+        return value instanceof Long || value instanceof BigInteger;
+    }
+
+    /**
+     * @param a an integer value
+     * @param b an integer value
+     * @return the sum a + b
+     */
+    public static Number add(Object a, Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            long x = (Long) a;
+            long y = (Long) b;
+            long r = x + y;
+            // overflow iff both arguments have the opposite sign of the result
+            if (((x ^ r) & (y ^ r)) >= 0) {
+                return r;
+            }
+        }
+        return valueOf(toBigInteger(a).add(toBigInteger(b)));
+    }
+
+    /**
+     * @param a an integer value
+     * @param b an integer value
+     * @return the difference a - b
+     */
+    public static Number subtract(Object a, Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            long x = (Long) a;
+            long y = (Long) b;
+            long r = x - y;
+            // overflow iff the arguments have different signs and the sign of
+            // the result differs from the sign of a
+            if (((x ^ y) & (x ^ r)) >= 0) {
+                return r;
+            }
+        }
+        return valueOf(toBigInteger(a).subtract(toBigInteger(b)));
+    }
+
+    /**
+     * @param a an integer value
+     * @param b an integer value
+     * @return the product a * b
+     */
+    public static Number multiply(Object a, Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            long x = (Long) a;
+            long y = (Long) b;
+            long r = x * y;
+            if (Math.multiplyHigh(x, y) == (r >> 63)) {
+                return r;
+            }
+        }
+        return valueOf(toBigInteger(a).multiply(toBigInteger(b)));
+    }
+
+    /**
+     * Integer division that rounds towards zero.
+     *
+     * @param a an integer value
+     * @param b an integer value
+     * @return the quotient a / b
+     * @throws ArithmeticException if b is zero
+     */
+    public static Number divide(Object a, Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            long x = (Long) a;
+            long y = (Long) b;
+            // the only overflow: MIN_VALUE / -1
+            if (x != Long.MIN_VALUE || y != -1) {
+                return x / y;
+            }
+        }
+        return valueOf(toBigInteger(a).divide(toBigInteger(b)));
+    }
+
+    /**
+     * @param a an integer value
+     * @return the additive inverse -a
+     */
+    public static Number negate(Object a) {
+        if (a instanceof Long && (Long) a != Long.MIN_VALUE) {
+            return -(Long) a;
+        }
+        return valueOf(toBigInteger(a).negate());
+    }
+
+    /**
+     * Compares two integer values.
+     *
+     * @param a an integer value
+     * @param b an integer value
+     * @return a negative number, zero or a positive number if a is less than,
+     * equal to or greater than b
+     */
+    public static int compare(Object a, Object b) {
+        if (a instanceof Long && b instanceof Long) {
+            return Long.compare((Long) a, (Long) b);
+        }
+        return toBigInteger(a).compareTo(toBigInteger(b));
+    }
+
+    /**
+     * Equality of two values. Integers are compared by their value, even if
+     * they are not in canonical form. All other objects are compared by their
+     * equals()-method.
+     *
+     * @param a a value
+     * @param b a value
+     * @return true if the values are equal
+     */
+    public static boolean equal(Object a, Object b) {
+        if (isInteger(a) && isInteger(b)) {
+            return compare(a, b) == 0;
+        }
+        return a.equals(b);
+    }
+
+}
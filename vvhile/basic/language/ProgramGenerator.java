@@ -0,0 +1,261 @@
+package vvhile.basic.language;
+
+import java.util.Random;
+
+/**
+ * A program generator creates random programs for the basic rule set. The
+ * programs are well-formed: they can be compiled, every variable is assigned
+ * before it is read and every program terminates. Hence, they are suitable as
+ * input for benchmarks and stress tests of all stages, from the scanner to the
+ * Hoare prover.
+ *
+ * The shape of the programs is controlled by a few parameters: the number of
+ * program variables, the maximal nesting depth of if- and while-statements and
+ * the maximal number of leaves of an expression. The size of a program is the
+ * number of statements it consists of. The same seed always yields the same
+ * programs.
+ *
+ * To ensure termination, every while-loop has its own counter variable that is
+ * decreased in every iteration and appears in the condition of the loop.
+ * Multiplications and divisions always have a small constant as their second
+ * argument, so that values do not grow too fast and there is no division by
+ * zero. All compound expressions are put into parentheses, since the grammar
+ * does not care about associativity.
+ *
+ * @author markus
+ */
+public class ProgramGenerator {
+
+    private static final String[] COMPARISONS = {"<", "<=", "=", ">=", ">"};
+    private static final String[] CONNECTIVES = {"&", "|", "->"};
+
+    private final Random random;
+    private final int variables;
+    private final int maxDepth;
+    private final int maxExpressionSize;
+    private final int maxIterations;
+
+    // number of loop counters used so far
+    private int counters;
+
+    /**
+     * Creates a new program generator with 8 variables, nesting depth 4 and
+     * expressions with up to 6 leaves.
+     *
+     * @param seed seed of the random numbers
+     */
+    public ProgramGenerator(long seed) {
+        this(seed, 8, 4, 6);
+    }
+
+    /**
+     * Creates a new program generator. Every loop runs at most three times.
+     *
+     * @param seed seed of the random numbers
+     * @param variables number of program variables, at least one
+     * @param maxDepth maximal nesting depth of if- and while-statements
+     * @param maxExpressionSize maximal number of leaves of an expression, at
+     * least one
+     */
+    public ProgramGenerator(long seed, int variables, int maxDepth, int maxExpressionSize) {
+        this(seed, variables, maxDepth, maxExpressionSize, 3);
+    }
+
+    /**
+     * Creates a new program generator.
+     *
+     * @param seed seed of the random numbers
+     * @param variables number of program variables, at least one
+     * @param maxDepth maximal nesting depth of if- and while-statements
+     * @param maxExpressionSize maximal number of leaves of an expression, at
+     * least one
+     * @param maxIterations maximal number of iterations of a loop
+     */
+    public ProgramGenerator(long seed, int variables, int maxDepth, int maxExpressionSize, int maxIterations) {
+        if (variables < 1 || maxDepth < 0 || maxExpressionSize < 1 || maxIterations < 0) {
+            throw new IllegalArgumentException("Invalid parameters for a program generator.");
+        }
+        this.random = new Random(seed);
+        this.variables = variables;
+        this.maxDepth = maxDepth;
+        this.maxExpressionSize = maxExpressionSize;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Generates a new program of the given size together with a pre- and a
+     * post-condition over its variables.
+     *
+     * @param size number of statements, at least one
+     * @return the program
+     */
+    public Program generate(int size) {
+        counters = 0;
+        StringBuilder builder = new StringBuilder();
+        // every variable gets an initial value
+        for (int i = 0; i < variables; i++) {
+            builder.append(variable(i)).append(" := ").append(constant()).append(";\n");
+        }
+        block(builder, Math.max(size, 1), 0);
+        return new Program(builder.toString(), condition(maxExpressionSize), condition(maxExpressionSize));
+    }
+
+    /**
+     * Generates a random integer expression over the program variables.
+     *
+     * @param size number of leaves
+     * @return the expression
+     */
+    public String integerExpression(int size) {
+        if (size <= 1) {
+            return random.nextInt(3) == 0 ? constant() : variable(random.nextInt(variables));
+        }
+        switch (random.nextInt(5)) {
+            case 0:
+                return "(" + integerExpression(size - 1) + " * " + (1 + random.nextInt(3)) + ")";
+            case 1:
+                return "(" + integerExpression(size - 1) + " / " + (1 + random.nextInt(3)) + ")";
+            default:
+                int left = 1 + random.nextInt(size - 1);
+                String operator = random.nextBoolean() ? " + " : " - ";
+                return "(" + integerExpression(left) + operator + integerExpression(size - left) + ")";
+        }
+    }
+
+    /**
+     * Generates a random boolean expression over the program variables. The
+     * expression consists of comparisons that are combined by logical
+     * operators.
+     *
+     * @param size number of leaves, i.e. integer expressions
+     * @return the expression
+     */
+    public String condition(int size) {
+        if (size <= 2) {
+            int left = size <= 1 ? 1 : 1 + random.nextInt(size - 1);
+            return "(" + integerExpression(left) + " " + COMPARISONS[random.nextInt(COMPARISONS.length)]
+                    + " " + integerExpression(Math.max(size - left, 1)) + ")";
+        } else if (random.nextInt(4) == 0) {
+            return "!" + condition(size);
+        } else {
+            int left = 2 + random.nextInt(size - 2);
+            return "(" + condition(left) + " " + CONNECTIVES[random.nextInt(CONNECTIVES.length)]
+                    + " " + condition(Math.max(size - left, 2)) + ")";
+        }
+    }
+
+    /*
+     * Appends a composition of statements of the given size.
+     */
+    private void block(StringBuilder builder, int size, int depth) {
+        while (size > 0) {
+            size -= statement(builder, size, depth);
+            if (size > 0) {
+                builder.append(";\n");
+            }
+        }
+    }
+
+    /*
+     * Appends one statement that uses at most the given size and returns the
+     * size used.
+     */
+    private int statement(StringBuilder builder, int size, int depth) {
+        int choice = random.nextInt(20);
+        // compound statements need room for a substatement
+        if (depth < maxDepth && size >= 3 && choice < 5) {
+            int inner = 1 + random.nextInt(Math.min(size - 2, 8 * (maxDepth - depth)));
+            int left = inner == 1 ? 1 : 1 + random.nextInt(inner - 1);
+            indent(builder, depth).append("if (").append(condition(expressionSize())).append(") {\n");
+            block(builder, left, depth + 1);
+            builder.append("\n");
+            indent(builder, depth).append("} else {\n");
+            block(builder, Math.max(inner - left, 1), depth + 1);
+            builder.append("\n");
+            indent(builder, depth).append("}");
+            return 1 + inner;
+        } else if (depth < maxDepth && size >= 3 && choice < 10) {
+            int inner = 1 + random.nextInt(Math.min(size - 2, 8 * (maxDepth - depth)));
+            String counter = "L" + counters++;
+            indent(builder, depth).append(counter).append(" := ").append(random.nextInt(maxIterations + 1)).append(";\n");
+            indent(builder, depth).append("while ((").append(counter).append(" > 0) & ")
+                    .append(condition(expressionSize())).append(") {\n");
+            block(builder, inner, depth + 1);
+            builder.append(";\n");
+            indent(builder, depth + 1).append(counter).append(" := ").append(counter).append(" - 1\n");
+            indent(builder, depth).append("}");
+            return 2 + inner;
+        } else if (choice == 10) {
+            indent(builder, depth).append("skip");
+            return 1;
+        } else {
+            indent(builder, depth).append(variable(random.nextInt(variables)))
+                    .append(" := ").append(integerExpression(expressionSize()));
+            return 1;
+        }
+    }
+
+    private int expressionSize() {
+        return 1 + random.nextInt(maxExpressionSize);
+    }
+
+    private String constant() {
+        return Integer.toString(random.nextInt(10));
+    }
+
+    private static String variable(int i) {
+        return "V" + i;
+    }
+
+    private static StringBuilder indent(StringBuilder builder, int depth) {
+        for (int i = 0; i < depth; i++) {
+            builder.append("    ");
+        }
+        return builder;
+    }
+
+    /**
+     * A generated program with a pre- and a post-condition. The conditions
+     * are random, so the Hoare triple is not necessarily valid.
+     */
+    public static class Program {
+
+        private final String source;
+        private final String preCondition;
+        private final String postCondition;
+
+        private Program(String source, String preCondition, String postCondition) {
+            this.source = source;
+            this.preCondition = preCondition;
+            this.postCondition = postCondition;
+        }
+
+        /**
+         * @return the source code of the program
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return a pre-condition over the variables of the program
+         */
+        public String getPreCondition() {
+            return preCondition;
+        }
+
+        /**
+         * @return a post-condition over the variables of the program
+         */
+        public String getPostCondition() {
+            return postCondition;
+        }
+
+        @Override
+        public String toString() {
+            return "{" + preCondition + "}\n" + source + "\n{" + postCondition + "}";
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+package vvhile.frontend;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import vvhile.basic.language.BasicRuleSet;
+
+/**
+ * A compiler service compiles many sources in parallel. The compilations are
+ * run by a pool of threads. Every thread compiles in fused mode with a
+ * pipeline and a rule set of its own, since the AST-builders of a rule set
+ * keep the state of the current compilation. The scanners of a thread are
+ * created from its rule set once and copied for every source. The parsing
+ * tables and the automata of the scanners are shared, they are cached and not
+ * changed after they are generated. Thus compilations do not share mutable
+ * state and do not wait for each other.
+ *
+ * A compilation that fails does not stop the others. Its result has no
+ * syntax tree, and the reason of the failure is added to the messages.
+ *
+ * The service should be closed when it is not needed any more, so that its
+ * threads terminate.
+ *
+ * @author markus
+ */
+public class CompilerService implements AutoCloseable {
+
+    private final Supplier<? extends RuleSet> ruleSets;
+    private final NonTerminal start;
+    private final ExecutorService executor;
+    // the executor is shut down on close() only if it was created here
+    private final boolean ownExecutor;
+    // every thread compiles with a pipeline and a rule set of its own
+    private final ThreadLocal<Pipeline> pipelines;
+    // the scanners of a thread copy the configuration of this one, so the
+    // tokens of the rule set are extracted only once
+    private final ThreadLocal<Scanner> scanners;
+
+    /**
+     * Creates a compiler service for programs of the basic rule set that uses
+     * as many threads as there are processors.
+     *
+     * @return a new compiler service
+     */
+    public static CompilerService forPrograms() {
+        return forPrograms(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a compiler service for programs of the basic rule set.
+     *
+     * @param threads number of threads compiling in parallel
+     * @return a new compiler service
+     */
+    public static CompilerService forPrograms(int threads) {
+        return new CompilerService(BasicRuleSet::new, BasicRuleSet.STM, threads);
+    }
+
+    /**
+     * Creates a new compiler service with a pool of the given number of
+     * threads.
+     *
+     * @param ruleSets creates a new rule set for every thread, all of them
+     * must describe the same grammar
+     * @param start the start symbol of the grammar
+     * @param threads number of threads compiling in parallel
+     */
+    public CompilerService(Supplier<? extends RuleSet> ruleSets, NonTerminal start, int threads) {
+        this(ruleSets, start, Executors.newFixedThreadPool(threads, new CompilerThreads()), true);
+    }
+
+    /**
+     * Creates a new compiler service whose compilations are run by the given
+     * executor. The executor is not shut down when the service is closed.
+     *
+     * @param ruleSets creates a new rule set for every thread, all of them
+     * must describe the same grammar
+     * @param start the start symbol of the grammar
+     * @param executor executor running the compilations
+     */
+    public CompilerService(Supplier<? extends RuleSet> ruleSets, NonTerminal start, ExecutorService executor) {
+        this(ruleSets, start, executor, false);
+    }
+
+    private CompilerService(Supplier<? extends RuleSet> ruleSets, NonTerminal start, ExecutorService executor,
+            boolean ownExecutor) {
+        this.ruleSets = ruleSets;
+        this.start = start;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.pipelines = ThreadLocal.withInitial(
+                () -> new Pipeline(this.ruleSets.get(), Pipeline.Mode.FUSED));
+        this.scanners = ThreadLocal.withInitial(
+                () -> Scanner.getDefaultScanner("", pipelines.get().getRuleSet()));
+    }
+
+    /**
+     * Compiles the given source without waiting for the result.
+     *
+     * @param source source code
+     * @return a future that completes with the result of the compilation
+     */
+    public CompletableFuture<Pipeline.Result> submit(CharSequence source) {
+        return CompletableFuture.supplyAsync(() -> compileHere(source), executor);
+    }
+
+    /**
+     * Compiles the given file without waiting for the result. The file is
+     * mapped into memory by the thread that compiles it.
+     *
+     * @param file path of a source file
+     * @return a future that completes with the result of the compilation
+     */
+    public CompletableFuture<Pipeline.Result> submit(Path file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return compileHere(SourceFile.map(file));
+            } catch (IOException e) {
+                return failed("Cannot read " + file + ": " + e.getMessage());
+            }
+        }, executor);
+    }
+
+    /**
+     * Compiles all the given sources in parallel. The method returns after
+     * all of them are compiled.
+     *
+     * @param sources source codes
+     * @return the results of the compilations in the order of the sources
+     */
+    public List<Pipeline.Result> compile(Collection<? extends CharSequence> sources) {
+        List<CompletableFuture<Pipeline.Result>> futures = new ArrayList<>(sources.size());
+        sources.forEach(source -> futures.add(submit(source)));
+        List<Pipeline.Result> results = new ArrayList<>(futures.size());
+        futures.forEach(future -> results.add(future.join()));
+        return results;
+    }
+
+    /**
+     * Compiles all the given files in parallel. The method returns after all
+     * of them are compiled.
+     *
+     * @param files paths of source files
+     * @return the results of the compilations by the files, in the order of
+     * the files
+     */
+    public Map<Path, Pipeline.Result> compileFiles(Collection<Path> files) {
+        Map<Path, CompletableFuture<Pipeline.Result>> futures = new LinkedHashMap<>();
+        files.forEach(file -> futures.put(file, submit(file)));
+        Map<Path, Pipeline.Result> results = new LinkedHashMap<>();
+        futures.forEach((file, future) -> results.put(file, future.join()));
+        return results;
+    }
+
+    /**
+     * Shuts down the threads of this service if they were created by it.
+     * Compilations that were already submitted are finished.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /*
+     * Compiles in the calling thread, a thread of the executor.
+     */
+    private Pipeline.Result compileHere(CharSequence source) {
+        try {
+            return pipelines.get().compile(new Scanner(source, scanners.get()), start);
+        } catch (IOException | RuntimeException e) {
+            // The AST-builders might still hold parts of the failed
+            // compilation. The next one gets a new rule set.
+            pipelines.remove();
+            return failed(e.getMessage());
+        }
+    }
+
+    private static Pipeline.Result failed(String message) {
+        List<Parser.Message> messages = new ArrayList<>();
+        messages.add(new Parser.Message(Parser.Message.ERROR, message, 0, 0));
+        return new Pipeline.Result(null, messages);
+    }
+
+    /*
+     * The threads of the pool are daemons, so a service that is not closed
+     * does not keep the virtual machine alive.
+     */
+    private static class CompilerThreads implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Compiler-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
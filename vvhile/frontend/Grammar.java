@@ -1,5 +1,6 @@
 package vvhile.frontend;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -7,8 +8,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import vvhile.util.SingletonCollection;
 
@@ -21,6 +25,9 @@ import vvhile.util.SingletonCollection;
  */
 public class Grammar {
 
+    // parsing tables that were already generated, see getParsingTable()
+    private static final Map<TableKey, ParsingTable> PARSING_TABLES = new ConcurrentHashMap<>();
+
     private Grammar() {
     }
 
@@ -363,6 +370,27 @@ public class Grammar {
         return generateParsingTable(rules, extractNonTerminals(rules), extractTerminals(rules), start);
     }
 
+    /**
+     * Returns the parsing table for the given rule set and start symbol. The
+     * table is generated only once for all rule sets that contain the same
+     * rules in the same order. Afterwards it is taken from a cache. The
+     * returned table is frozen and can therefore be shared by parsers of
+     * different threads.
+     *
+     * @param ruleSet the rules of the grammar
+     * @param start the start symbol of the grammar
+     * @return the parsing table for the grammar if it can be transformed into
+     * an LL(1)-grammar
+     */
+    public static ParsingTable getParsingTable(RuleSet ruleSet, NonTerminal start) {
+        // the rules of the rule set are copied, so they stay as they are now
+        return PARSING_TABLES.computeIfAbsent(new TableKey(new ArrayList<>(ruleSet.getRules()), start), key -> {
+            ParsingTable table = generateParsingTable(ruleSet, start);
+            table.freeze();
+            return table;
+        });
+    }
+
     /*
      * For an LL(1)-grammar this method generates the according parsing table by
      * computing the first+ sets of the rules.
@@ -550,4 +578,42 @@ public class Grammar {
 
     }
 
+    /*
+     * Parsing tables are cached by the content of the rule set and the start
+     * symbol. Rules are equal if their variables are equal, so equal rule sets
+     * that were created independently share a parsing table.
+     */
+    private static class TableKey {
+
+        private final List<Rule> rules;
+        private final NonTerminal start;
+        private final int hash;
+
+        TableKey(List<Rule> rules, NonTerminal start) {
+            this.rules = rules;
+            this.start = start;
+            this.hash = 31 * rules.hashCode() + Objects.hashCode(start);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TableKey)) {
+                return false;
+            }
+            final TableKey other = (TableKey) obj;
+            return hash == other.hash
+                    && Objects.equals(start, other.start)
+                    && rules.equals(other.rules);
+        }
+
+    }
+
 }
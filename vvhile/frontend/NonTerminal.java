@@ -1,5 +1,7 @@
 package vvhile.frontend;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * A non-terminal is a variable that can be replaced by a sequence of other
  * variables according to a given rule.
@@ -7,8 +9,13 @@ package vvhile.frontend;
  * @author markus
  */
 public class NonTerminal implements Variable {
-    
+
+    // source of the ids of the non-terminals
+    private static final AtomicInteger IDS = new AtomicInteger();
+
     private final String name;
+    // a unique number, frozen parsing tables use it as an array index
+    final int id = IDS.getAndIncrement();
 
     /**
      * Creates a new non-terminal with the given name.
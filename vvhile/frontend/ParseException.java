@@ -1,5 +1,8 @@
 package vvhile.frontend;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * A parse exception is thrown whenever something goes wrong during the parsing
  * process. 
@@ -8,6 +11,8 @@ package vvhile.frontend;
  */
 public class ParseException extends RuntimeException {
 
+    private final List<Parser.Message> messages;
+
     /**
      * Creates a new parse exception.
      */
@@ -21,7 +26,32 @@ public class ParseException extends RuntimeException {
      * @param message a message
      */
     public ParseException(String message) {
-        super(message);
+        this(message, Collections.emptyList());
+    }
+
+    /**
+     * Creates a new parse exception from a given message and the messages of
+     * the parser that explain the problem.
+     *
+     * @param message a message
+     * @param messages messages of the parser
+     */
+    public ParseException(String message, List<Parser.Message> messages) {
+        super(messages.isEmpty() ? message : message + ":\n" + toString(messages));
+        this.messages = List.copyOf(messages);
+    }
+
+    /**
+     * @return messages of the parser, might be empty
+     */
+    public List<Parser.Message> getMessages() {
+        return messages;
+    }
+
+    private static String toString(List<Parser.Message> messages) {
+        StringBuilder builder = new StringBuilder();
+        messages.forEach(message -> builder.append(message).append('\n'));
+        return builder.toString().trim();
     }
     
 }
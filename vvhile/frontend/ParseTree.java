@@ -2,7 +2,15 @@ package vvhile.frontend;
 
 import java.util.LinkedList;
 import java.util.List;
-import vvhile.util.BoundedBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import vvhile.util.Buffer;
+import vvhile.util.BufferReader;
+import vvhile.util.BufferWriter;
+import vvhile.util.ThreadPerTaskExecutor;
 
 /**
  * <p>
@@ -32,9 +40,9 @@ public class ParseTree {
     private ProperNode active;
 
     // source of data for building up the tree
-    private final BoundedBuffer<Parser.ParseObject> input;
-    // thread object
-    private Thread thread;
+    private final Buffer<Parser.ParseObject> input;
+    // completes when the retranslation is finished
+    private volatile CompletableFuture<Void> completion;
 
     /**
      * Creates a new parse tree. It retreives its data from the given input
@@ -42,10 +50,18 @@ public class ParseTree {
      *
      * @param input source of data for building up the tree
      */
-    public ParseTree(BoundedBuffer<Parser.ParseObject> input) {
+    public ParseTree(Buffer<Parser.ParseObject> input) {
         this.input = input;
     }
 
+    /**
+     * Creates a new parse tree without an input buffer. Use the
+     * accept()-method to feed it with data.
+     */
+    public ParseTree() {
+        this(null);
+    }
+
     /**
      * Start retranslating the data given by the input buffer. The data is used
      * to build up the tree. Token are directly passed to the given output
@@ -55,36 +71,82 @@ public class ParseTree {
      *
      * @param buffer output buffer
      */
-    public void startRetranslation(BoundedBuffer<Parser.ParseObject> buffer) {
-        Runnable r = () -> {
-            boolean finished = false;
-            Parser.ParseObject next;
-            do {
-                // Retreive data.
-                next = input.get();
-                // It is either a token or a rule
-                if (next instanceof Token) {
-                    // if the data was the eof-token or a message that stops the
-                    // translation, finished is set to true
-                    finished = addToken((Token) next, buffer);
-                } else if (next instanceof Rule) {
-                    addRule((Rule) next, buffer);
+    public void startRetranslation(Buffer<Parser.ParseObject> buffer) {
+        startRetranslation(buffer, new ThreadPerTaskExecutor("Parse tree"));
+    }
+
+    /**
+     * Start retranslating the data given by the input buffer. The
+     * retranslation is run by the given executor. If the data does not fit
+     * into the tree, an error token is passed to the output buffer and the
+     * rest of the input is read, so that neither the following stage nor the
+     * parser waits forever, and the future completes exceptionally.
+     *
+     * @param buffer output buffer
+     * @param executor executor running the retranslation
+     * @return a future that completes when the retranslation is finished
+     */
+    public CompletableFuture<Void> startRetranslation(Buffer<Parser.ParseObject> buffer, Executor executor) {
+        return completion = CompletableFuture.runAsync(() -> {
+            // data is read and written in batches, the output is flushed
+            // before the retranslation waits for input
+            BufferWriter<Parser.ParseObject> writer = new BufferWriter<>(buffer);
+            BufferReader<Parser.ParseObject> reader = new BufferReader<>(input, writer);
+            Parser.ParseObject next = null;
+            try {
+                boolean finished;
+                do {
+                    // Retreive data.
+                    next = reader.get();
+                    finished = accept(next, writer);
+                } while (!finished);
+                writer.flush();
+            } catch (RuntimeException e) {
+                writer.accept(new Token.Error(e.getMessage()));
+                writer.flush();
+                // the parser waits until its output is read
+                while (next == null || !Parser.isLast(next)) {
+                    next = reader.get();
                 }
-            } while (!finished);
-            thread = null;
-        };
-        // Start the thread.
-        (thread = new Thread(r, "Parse tree")).start();
+                throw e;
+            }
+        }, executor);
+    }
+
+    /**
+     * Adds a single object of the parser output to the tree. Tokens and
+     * retranslated rules are passed to the given output. This method allows
+     * to build the tree in the calling thread.
+     *
+     * @param next a token or a rule
+     * @param output receiver of the retranslated data
+     * @return true if the end-of-file token was read and the retranslation is
+     * finished
+     */
+    public boolean accept(Parser.ParseObject next, Consumer<Parser.ParseObject> output) {
+        // It is either a token or a rule
+        if (next instanceof Token) {
+            // if the data was the eof-token or a message that stops the
+            // translation, true is returned
+            return addToken((Token) next, output);
+        } else if (next instanceof Rule) {
+            addRule((Rule) next, output);
+        }
+        return false;
     }
 
     /*
      * Add a token. Return true if the retranslation should be stopped.
      */
-    private boolean addToken(Token token, BoundedBuffer<Parser.ParseObject> buffer) {
-        if (active.fits(token)) {
+    private boolean addToken(Token token, Consumer<Parser.ParseObject> buffer) {
+        if (token instanceof Token.Error) {
+            // The parser failed. Pass the error on and stop.
+            buffer.accept(token);
+            return true;
+        } else if (active.fits(token)) {
             // The token fits into the active rule. Add it and pass it to the output.
             active.addChild(new Leaf(token, active));
-            buffer.put(token);
+            buffer.accept(token);
         } else if (active.isFull() && active.getParent() != null) {
             // The active rule is already filled with children. Go up one level and repeat.
             active = active.getParent();
@@ -92,7 +154,7 @@ public class ParseTree {
         } else if (active.parent == null) {
             if (Token.EOF.equals(token)) {
                 // The parse tree is build up completely and the eof-token was read.
-                buffer.put(Token.EOF);
+                buffer.accept(Token.EOF);
                 return true;
             } else {
                 throw new ParseException("EOF was read but parse tree is not complete.");
@@ -103,7 +165,7 @@ public class ParseTree {
         return false;
     }
 
-    private void addRule(Rule rule, BoundedBuffer<Parser.ParseObject> buffer) {
+    private void addRule(Rule rule, Consumer<Parser.ParseObject> buffer) {
         if (root == null) {
             // This is the first rule, so it becomes the root.
             root = active = new ProperNode(rule, null);
@@ -117,7 +179,7 @@ public class ParseTree {
             // wrapped by the rewrite rule. Pass the original to the output.
             if (rule instanceof Grammar.RewriteRule) {
                 Grammar.RewriteRule rewriteRule = (Grammar.RewriteRule) rule;
-                buffer.put(rewriteRule.getOriginalRule());
+                buffer.accept(rewriteRule.getOriginalRule());
             }
         } else if (active.isFull() && active.getParent() != null) {
             // active rule is already filled with children. Go up one level and repeat.
@@ -144,10 +206,12 @@ public class ParseTree {
      * Wait for the termination of the retranslation.
      */
     public void join() {
-        while (thread != null) {
+        CompletableFuture<Void> stage = completion;
+        if (stage != null) {
             try {
-                thread.join();
-            } catch (InterruptedException ex) {
+                stage.join();
+            } catch (CompletionException | CancellationException ex) {
+                // the failure is reported by the future
             }
         }
     }
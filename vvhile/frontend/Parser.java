@@ -1,15 +1,23 @@
 package vvhile.frontend;
 
 import vvhile.frontend.Scanner.ScanObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Stack;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import vvhile.basic.language.BasicRuleSet;
 import static vvhile.frontend.Token.EOF;
-import vvhile.intrep.ASTCompiler;
-import vvhile.intrep.ASTElement;
 import vvhile.intrep.Expression;
-import vvhile.util.BoundedBuffer;
+import vvhile.util.Buffer;
+import vvhile.util.BufferReader;
+import vvhile.util.BufferWriter;
+import vvhile.util.ThreadPerTaskExecutor;
 
 /**
  * A parser reads tokens from a scanner and matches them agains a grammar. While
@@ -24,9 +32,9 @@ public class Parser {
     // The "word" contains the variables that are matched by the read tokens
     // This stack builds up as non-terminals are replaced by the right-hand-side
     // of a matching rule and build down as the parser reads matching tokens.
-    private final Stack<Variable> word;
+    private final ArrayDeque<Variable> word;
     // the token stream provided by the scanner
-    private final BoundedBuffer<ScanObject> tokenStream;
+    private final Buffer<ScanObject> tokenStream;
     // the parsing table representing a grammar
     private final ParsingTable parsingTable;
 
@@ -34,23 +42,35 @@ public class Parser {
     private Token nextToken;
     // the list of events occouring while parsing
     private final List<Message> messages;
-    // thread object
-    private Thread thread;
+    // completes when the parsing started by startParsing() is finished
+    private volatile CompletableFuture<Boolean> completion;
 
     /**
      * Creates a new parser that is connected to a scanner via a stream. The
      * parser parses its inputs against the rules of a grammar specified by a
-     * set of rules.
+     * set of rules. The parsing table of the grammar is generated only once
+     * and shared by all parsers, see Grammar.getParsingTable().
      *
      * @param tokenStream stream from scanner
      * @param ruleSet grammar
      * @param start the start symbol of the grammar
      */
-    public Parser(BoundedBuffer<ScanObject> tokenStream, RuleSet ruleSet, NonTerminal start) {
+    public Parser(Buffer<ScanObject> tokenStream, RuleSet ruleSet, NonTerminal start) {
         this.tokenStream = tokenStream;
-        this.parsingTable = Grammar.generateParsingTable(ruleSet, start);
+        this.parsingTable = Grammar.getParsingTable(ruleSet, start);
         this.messages = new LinkedList<>();
-        this.word = new Stack<>();
+        this.word = new ArrayDeque<>();
+    }
+
+    /**
+     * Creates a new parser that is not connected to a scanner. Use the
+     * parse()-method to feed it with tokens.
+     *
+     * @param ruleSet grammar
+     * @param start the start symbol of the grammar
+     */
+    public Parser(RuleSet ruleSet, NonTerminal start) {
+        this(null, ruleSet, start);
     }
 
     /**
@@ -60,42 +80,92 @@ public class Parser {
      * then passes Token.EOF to the buffer.
      *
      * @param start the start symbol of the grammar
-     * @param buffer A bounded buffer
+     * @param buffer A buffer
      */
-    public void startParsing(NonTerminal start, BoundedBuffer<ParseObject> buffer) {
-        (thread = new Thread(() -> {
-            parse(start, buffer);
-            messages.stream().forEach(message -> System.out.println(message));
-            thread = null;
-        }, "Parser")).start();
+    public void startParsing(NonTerminal start, Buffer<ParseObject> buffer) {
+        startParsing(start, buffer, new ThreadPerTaskExecutor("Parser"), true);
     }
 
-    /*
-     * Reads from the token stream and matches the tokens against the grammar
-     * given by the parsing table starting with the specified start symbol.
-     * The passed data (= matching rules + tokens) are passed to the buffer feeding
-     * the parsing tree.
+    /**
+     * Parses the token stream and passes them and the deduced rules to the
+     * buffer. The parsing is run by the given executor. Unlike the method
+     * above, the messages are not printed. Use getMessages() after the future
+     * completed.
+     *
+     * @param start the start symbol of the grammar
+     * @param buffer A buffer
+     * @param executor executor running the parser
+     * @return a future that completes with true if the token stream matches
+     * the grammar
+     */
+    public CompletableFuture<Boolean> startParsing(NonTerminal start, Buffer<ParseObject> buffer,
+            Executor executor) {
+        return startParsing(start, buffer, executor, false);
+    }
+
+    private CompletableFuture<Boolean> startParsing(NonTerminal start, Buffer<ParseObject> buffer,
+            Executor executor, boolean print) {
+        return completion = CompletableFuture.supplyAsync(() -> {
+            // tokens and rules are passed in batches, the output is flushed
+            // before the parser waits for tokens
+            BufferWriter<ParseObject> writer = new BufferWriter<>(buffer);
+            BufferReader<ScanObject> reader = new BufferReader<>(tokenStream, writer);
+            boolean successful = false;
+            try {
+                successful = parse(start, reader, writer);
+            } finally {
+                if (!successful) {
+                    // tell the following stages that no more data will come
+                    writer.accept(new Token.Error("Parsing failed."));
+                    writer.flush();
+                    // the scanner waits until its tokens are read
+                    while (nextToken == null || !isLast(nextToken)) {
+                        nextToken = reader.get().getToken();
+                    }
+                }
+                writer.flush();
+            }
+            if (print) {
+                messages.stream().forEach(message -> System.out.println(message));
+            }
+            return successful;
+        }, executor);
+    }
+
+    /**
+     * Reads from the source and matches the tokens against the grammar given
+     * by the parsing table starting with the specified start symbol. The
+     * matching rules and tokens are passed to the sink. This method runs in
+     * the calling thread. It returns after the end-of-file token was read or
+     * an error occured. The messages created along the way can be retrieved
+     * afterwards.
+     *
+     * @param start the start symbol of the grammar
+     * @param source source of the tokens, e.g. a scanner
+     * @param sink receiver of the rules and tokens, e.g. a parse tree
+     * @return true if the source matches the grammar
      */
-    private boolean parse(NonTerminal start, BoundedBuffer<ParseObject> buffer) {
+    public boolean parse(NonTerminal start, Supplier<ScanObject> source, Consumer<ParseObject> sink) {
         // initialize word, use start symbol of the grammar
-        word.add(start);
+        word.clear();
+        messages.clear();
+        nextToken = null;
+        word.push(start);
         // read from scanner
-        ScanObject scanObject = tokenStream.get();
+        ScanObject scanObject = source.get();
         nextToken = scanObject.getToken();
         // read from scanner as long as there are next tokens and no error accours
         while (true) {
             // there is no non-terminal to which a rule could be applied
             if (word.isEmpty()) {
-                messages.add(new Message(Message.MESSAGE, "Traversion of the parse tree is finished!",
-                        scanObject.getLine(), scanObject.getPositionInLine()));
+                messages.add(finished(scanObject));
                 // Good case: scanner reached the end-of-file token
                 if (EOF.equals(nextToken)) {
-                    buffer.put(EOF);
+                    sink.accept(EOF);
                     return true;
                 } // Bad case: there are still unparsed tokens
                 else {
-                    messages.add(new Message(Message.WARNING, "Didn't reach the end of the imput!",
-                            scanObject.getLine(), scanObject.getPositionInLine()));
+                    messages.add(notAtEnd(scanObject));
                     return false;
                 }
             } // the current word starts with a token
@@ -104,17 +174,13 @@ public class Parser {
                 if (word.peek().equals(nextToken)) {
                     // Success: the read token matches the grammar, pass it to the parse tree
                     word.pop();
-                    buffer.put(nextToken);
+                    sink.accept(nextToken);
                     // read from scanner
-                    scanObject = tokenStream.get();
+                    scanObject = source.get();
                     nextToken = scanObject.getToken();
                 } else {
                     // Failed: mismatch
-                    messages.add(new Message(Message.ERROR, "Wrong token! \n   Read \""
-                            + nextToken + "\", but expected \""
-                            + (word.peek() instanceof Token ? word.peek()
-                            : parsingTable.getPossibleTokensFor((NonTerminal) word.peek())) + "\"",
-                            scanObject.getLine(), scanObject.getPositionInLine()));
+                    messages.add(wrongToken(nextToken, word.peek(), scanObject));
                     return false;
                 }
             } // The current word is a non-terminal
@@ -124,67 +190,84 @@ public class Parser {
                 Rule rule = parsingTable.getRule(nonTerminal, nextToken);
                 // if there isn't any, the input does not match the grammar
                 if (rule == null) {
-                    messages.add(new Message(Message.ERROR, "No applicable Rule found!\n"
-                            + "   Expected " + parsingTable.getPossibleTokensFor(nonTerminal) + "\n"
-                            + "   but next Token is \"" + nextToken + "\".\n"
-                            + "   Current Nonterminal is " + nonTerminal + ".",
-                            scanObject.getLine(), scanObject.getPositionInLine()));
+                    messages.add(noRule(parsingTable, nonTerminal, nextToken, scanObject));
                     return false;
                 }
                 // pass the rule to the parse tree
-                buffer.put(rule);
+                sink.accept(rule);
                 Variable[] rhs = rule.getRhs();
                 // append the right-hand-side of the rule to the word in reverse order
                 // therefore the first element is the top-most
                 for (int i = rhs.length - 1; i >= 0; i--) {
-                    word.add(rhs[i]);
+                    word.push(rhs[i]);
                 }
             }
         }
     }
 
+    /*
+     * The messages of the parser. They are shared with the generated parsers.
+     */
+    static Message finished(ScanObject scanObject) {
+        return new Message(Message.MESSAGE, "Traversion of the parse tree is finished!",
+                scanObject.getLine(), scanObject.getPositionInLine());
+    }
+
+    static Message notAtEnd(ScanObject scanObject) {
+        return new Message(Message.WARNING, "Didn't reach the end of the imput!",
+                scanObject.getLine(), scanObject.getPositionInLine());
+    }
+
+    static Message wrongToken(Token read, Variable expected, ScanObject scanObject) {
+        return new Message(Message.ERROR, "Wrong token! \n   Read \""
+                + read + "\", but expected \"" + expected + "\"",
+                scanObject.getLine(), scanObject.getPositionInLine());
+    }
+
+    static Message noRule(ParsingTable parsingTable, NonTerminal nonTerminal, Token read, ScanObject scanObject) {
+        return new Message(Message.ERROR, "No applicable Rule found!\n"
+                + "   Expected " + parsingTable.getPossibleTokensFor(nonTerminal) + "\n"
+                + "   but next Token is \"" + read + "\".\n"
+                + "   Current Nonterminal is " + nonTerminal + ".",
+                scanObject.getLine(), scanObject.getPositionInLine());
+    }
+
+    /**
+     * @return the messages of the last parse
+     */
+    public List<Message> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
     /**
      * Wait for parser to finish parsing.
      */
     public void join() {
-        while (thread != null) {
+        CompletableFuture<Boolean> stage = completion;
+        if (stage != null) {
             try {
-                thread.join();
-            } catch (InterruptedException ex) {
+                stage.join();
+            } catch (CompletionException | CancellationException ex) {
+                // the failure is reported by the future
             }
         }
     }
 
+    /**
+     * Parses the given string as an expression of the basic rule set. All
+     * stages of the compilation run in the calling thread.
+     *
+     * @param expression a string representation of an expression
+     * @return the expression
+     * @throws ParseException if the string does not represent an expression
+     */
     public static Expression parseExpression(String expression) {
-        RuleSet grammar = new BasicRuleSet();
-
-        Scanner scanner = Scanner.getDefaultScanner(expression);
-
-        BoundedBuffer<Scanner.ScanObject> scannerToParser = new BoundedBuffer<>(32);
-        scanner.startScan(scannerToParser);
-
-        Parser parser = new Parser(scannerToParser, grammar, BasicRuleSet.EXPR);
-        BoundedBuffer<Parser.ParseObject> parserToParseTree = new BoundedBuffer<>(32);
-        parser.startParsing(BasicRuleSet.EXPR, parserToParseTree);
-
-        ParseTree parseTree = new ParseTree(parserToParseTree);
-        BoundedBuffer<Parser.ParseObject> parseTreeToASTCompiler = new BoundedBuffer<>(32);
-        parseTree.startRetranslation(parseTreeToASTCompiler);
-
-        ASTCompiler astCompiler = new ASTCompiler(parseTreeToASTCompiler, grammar);
-        BoundedBuffer<Parser.ParseObject> astCompilerToInterpreter = new BoundedBuffer<>(32);
-        astCompiler.startCompilation(astCompilerToInterpreter);
-
-        scanner.join();
-        parser.join();
-        parseTree.join();
-        astCompiler.join();
-
-        ASTElement result = astCompiler.getRoot();
-        if (result instanceof Expression) {
-            return (Expression) result;
+        Pipeline.Result result = new Pipeline(new BasicRuleSet(), Pipeline.Mode.FUSED)
+                .compile(expression, BasicRuleSet.EXPR);
+        if (result.getRoot() instanceof Expression) {
+            return (Expression) result.getRoot();
         } else {
-            throw new ParseException("The given String does not represent an expression");
+            throw new ParseException("The given String does not represent an expression", result.getMessages());
         }
     }
 
@@ -253,6 +336,15 @@ public class Parser {
 
     }
 
+    /**
+     * @param parseObject an object passed between the stages
+     * @return true if no objects follow the given one, i.e. it is the
+     * end-of-file token or an error
+     */
+    public static boolean isLast(ParseObject parseObject) {
+        return EOF.equals(parseObject) || parseObject instanceof Token.Error;
+    }
+
     /**
      * Parse objects are the objects that the parser passes to the parse tree.
      * Those objects are tokens and rules.
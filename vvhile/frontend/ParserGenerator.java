@@ -0,0 +1,330 @@
+package vvhile.frontend;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import vvhile.util.InMemoryCompiler;
+import vvhile.util.Pair;
+
+/**
+ * The parser generator turns the LL(1)-grammar of a rule set into a
+ * recursive-descent parser. Every non-terminal becomes a method of the
+ * generated class. The method switches over the column of the current token
+ * in the parsing table, passes the matching rule to the sink and then matches
+ * the right hand side of the rule: tokens are compared with the current token
+ * and non-terminals call their methods.
+ *
+ * The methods do not call each other. A method returns the number of the
+ * next non-terminal instead, and if its rule continues after that
+ * non-terminal, the rest of the rule becomes a continuation method whose
+ * number is pushed onto a stack. See RecursiveDescentParser.
+ *
+ * The class is generated and compiled once for every parsing table. Compiling
+ * takes some time since the Java compiler is invoked, so it pays off for
+ * grammars that parse a lot of input, e.g. the basic rule set.
+ *
+ * @author markus
+ */
+public class ParserGenerator {
+
+    /**
+     * The package of all generated classes.
+     */
+    public static final String PACKAGE = "vvhile.frontend.generated";
+
+    // used to give every generated class a unique name
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    // the generated parsers of the parsing tables
+    private static final Map<ParsingTable, Factory> FACTORIES = new ConcurrentHashMap<>();
+
+    private ParserGenerator() {
+    }
+
+    /**
+     * @return true if parsers can be generated, i.e. there is a system Java
+     * compiler
+     */
+    public static boolean isAvailable() {
+        return InMemoryCompiler.isAvailable();
+    }
+
+    /**
+     * Creates a new recursive-descent parser for the given grammar. The
+     * parser class is only generated the first time, afterwards it is taken
+     * from a cache.
+     *
+     * @param ruleSet grammar
+     * @param start the start symbol of the grammar
+     * @return a new parser
+     * @throws IllegalStateException if there is no system Java compiler
+     */
+    public static RecursiveDescentParser newParser(RuleSet ruleSet, NonTerminal start) {
+        ParsingTable parsingTable = Grammar.getParsingTable(ruleSet, start);
+        Factory factory = FACTORIES.computeIfAbsent(parsingTable, table -> generate(table, start));
+        try {
+            return factory.constructor.newInstance(parsingTable, factory.rules, factory.tokens,
+                    factory.nonTerminals);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The generated parser cannot be created.", e);
+        }
+    }
+
+    /**
+     * Returns the source code of the recursive-descent parser for the given
+     * grammar. The rules, tokens and non-terminals the code refers to are
+     * passed to the constructor of the class in arrays.
+     *
+     * @param ruleSet grammar
+     * @param start the start symbol of the grammar
+     * @return source code of a parser class
+     */
+    public static String generateSource(RuleSet ruleSet, NonTerminal start) {
+        return new Generator(Grammar.getParsingTable(ruleSet, start), start).generate("Parser");
+    }
+
+    private static Factory generate(ParsingTable parsingTable, NonTerminal start) {
+        String className = "Parser" + COUNTER.incrementAndGet();
+        Generator generator = new Generator(parsingTable, start);
+        String source = generator.generate(className);
+        Class<?> generated = new InMemoryCompiler().compile(PACKAGE + "." + className, source);
+        try {
+            Constructor<? extends RecursiveDescentParser> constructor = generated
+                    .asSubclass(RecursiveDescentParser.class)
+                    .getConstructor(ParsingTable.class, Rule[].class, Token[].class, NonTerminal[].class);
+            return new Factory(constructor,
+                    generator.rules.toArray(new Rule[0]),
+                    generator.tokens.toArray(new Token[0]),
+                    generator.nonTerminals.toArray(new NonTerminal[0]));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Generated class " + className + " has no constructor.", e);
+        }
+    }
+
+    /*
+     * The constructor of a generated class and the objects its code refers to.
+     */
+    private static class Factory {
+
+        private final Constructor<? extends RecursiveDescentParser> constructor;
+        private final Rule[] rules;
+        private final Token[] tokens;
+        private final NonTerminal[] nonTerminals;
+
+        Factory(Constructor<? extends RecursiveDescentParser> constructor, Rule[] rules, Token[] tokens,
+                NonTerminal[] nonTerminals) {
+            this.constructor = constructor;
+            this.rules = rules;
+            this.tokens = tokens;
+            this.nonTerminals = nonTerminals;
+        }
+
+    }
+
+    /*
+     * The generator creates the source code of the parser class. It numbers
+     * the rules, tokens and non-terminals the code refers to in the order
+     * they are used.
+     */
+    private static class Generator {
+
+        private final ParsingTable parsingTable;
+        private final NonTerminal start;
+        // the numbers of the objects and the objects by their numbers.
+        // Tokens are compared by equals(), but the generated code refers to
+        // the very objects of the grammar.
+        private final Map<Rule, Integer> ruleNumbers = new IdentityHashMap<>();
+        private final List<Rule> rules = new ArrayList<>();
+        private final Map<Token, Integer> tokenNumbers = new IdentityHashMap<>();
+        private final List<Token> tokens = new ArrayList<>();
+        private final Map<NonTerminal, Integer> nonTerminalNumbers = new IdentityHashMap<>();
+        private final List<NonTerminal> nonTerminals = new ArrayList<>();
+        // the continuations: a rule and the position in its right hand side
+        private final List<Pair<Rule, Integer>> continuations = new ArrayList<>();
+        private final StringBuilder code = new StringBuilder();
+
+        Generator(ParsingTable parsingTable, NonTerminal start) {
+            this.parsingTable = parsingTable;
+            this.start = start;
+            // the rows of the table come first, so that their numbers agree
+            for (int row = 0; row < parsingTable.rowCount(); row++) {
+                nonTerminal(parsingTable.nonTerminalAt(row));
+            }
+        }
+
+        String generate(String className) {
+            line(0, "package " + PACKAGE + ";");
+            line(0, "");
+            line(0, "import vvhile.frontend.NonTerminal;");
+            line(0, "import vvhile.frontend.ParsingTable;");
+            line(0, "import vvhile.frontend.RecursiveDescentParser;");
+            line(0, "import vvhile.frontend.Rule;");
+            line(0, "import vvhile.frontend.Token;");
+            line(0, "");
+            line(0, "public final class " + className + " extends RecursiveDescentParser {");
+            line(0, "");
+            line(1, "private final Rule[] r;");
+            line(1, "private final Token[] t;");
+            line(1, "private final NonTerminal[] n;");
+            line(0, "");
+            line(1, "public " + className + "(ParsingTable table, Rule[] r, Token[] t, NonTerminal[] n) {");
+            line(2, "super(table);");
+            line(2, "this.r = r;");
+            line(2, "this.t = t;");
+            line(2, "this.n = n;");
+            line(1, "}");
+            line(0, "");
+            line(1, "@Override");
+            line(1, "protected int start() {");
+            line(2, "return " + nonTerminal(start) + ";");
+            line(1, "}");
+            // a method for every non-terminal and every continuation, more of
+            // them show up while generating them
+            for (int i = 0; i < nonTerminals.size(); i++) {
+                method(nonTerminals.get(i));
+            }
+            for (int i = 0; i < continuations.size(); i++) {
+                continuation(i);
+            }
+            dispatch("parseNonTerminal", "n", nonTerminals.size());
+            dispatch("resume", "c", continuations.size());
+            line(0, "");
+            line(0, "}");
+            return code.toString();
+        }
+
+        /*
+         * Calls the method of the given number.
+         */
+        private void dispatch(String name, String prefix, int count) {
+            line(0, "");
+            line(1, "@Override");
+            line(1, "protected int " + name + "(int number) {");
+            line(2, "switch (number) {");
+            for (int i = 0; i < count; i++) {
+                line(3, "case " + i + ":");
+                line(4, "return " + prefix + i + "();");
+            }
+            line(3, "default:");
+            line(4, "return FAILED;");
+            line(2, "}");
+            line(1, "}");
+        }
+
+        /*
+         * The method of a non-terminal returns DONE, FAILED or the number of
+         * the non-terminal that has to be parsed next.
+         */
+        private void method(NonTerminal nonTerminal) {
+            int number = nonTerminalNumbers.get(nonTerminal);
+            line(0, "");
+            line(1, "// " + comment(nonTerminal));
+            line(1, "private int n" + number + "() {");
+            int row = parsingTable.row(nonTerminal);
+            if (row < 0) {
+                // there is no rule for this non-terminal
+                line(2, "return noRule(n[" + number + "]);");
+                line(1, "}");
+                return;
+            }
+            // group the columns by their rules
+            Map<Rule, List<Integer>> columns = new LinkedHashMap<>();
+            for (int column = 0; column < parsingTable.columnCount(); column++) {
+                Rule rule = parsingTable.ruleAt(row, column);
+                if (rule != null) {
+                    columns.computeIfAbsent(rule, r -> new ArrayList<>()).add(column);
+                }
+            }
+            line(2, "switch (column()) {");
+            columns.forEach((rule, cases) -> {
+                for (int column : cases) {
+                    line(3, "case " + column + ":");
+                }
+                rule(rule);
+            });
+            line(3, "default:");
+            line(4, "return noRule(n[" + number + "]);");
+            line(2, "}");
+            line(1, "}");
+        }
+
+        private void rule(Rule rule) {
+            line(4, "// " + comment(rule));
+            line(4, "apply(r[" + number(ruleNumbers, rules, rule) + "]);");
+            body(rule, 0, 4);
+        }
+
+        /*
+         * The method of a continuation parses the rest of a rule.
+         */
+        private void continuation(int number) {
+            Pair<Rule, Integer> continuation = continuations.get(number);
+            line(0, "");
+            line(1, "// " + comment(continuation.first()) + " from " + continuation.second());
+            line(1, "private int c" + number + "() {");
+            body(continuation.first(), continuation.second(), 2);
+            line(1, "}");
+        }
+
+        /*
+         * Matches the tokens of the right hand side from the given position up
+         * to the next non-terminal and returns it.
+         */
+        private void body(Rule rule, int position, int indent) {
+            Variable[] rhs = rule.getRhs();
+            for (int i = position; i < rhs.length; i++) {
+                if (rhs[i] instanceof Token) {
+                    line(indent, "if (!match(t[" + number(tokenNumbers, tokens, (Token) rhs[i]) + "])) {");
+                    line(indent + 1, "return FAILED;");
+                    line(indent, "}");
+                } else if (rhs[i] instanceof NonTerminal) {
+                    if (i < rhs.length - 1) {
+                        // the rule continues after the non-terminal
+                        continuations.add(new Pair<>(rule, i + 1));
+                        line(indent, "push(" + (continuations.size() - 1) + ");");
+                    }
+                    line(indent, "return " + nonTerminal((NonTerminal) rhs[i]) + ";");
+                    return;
+                } else {
+                    throw new IllegalStateException("Unknown variable " + rhs[i] + " in rule " + rule + ".");
+                }
+            }
+            line(indent, "return DONE;");
+        }
+
+        private int nonTerminal(NonTerminal nonTerminal) {
+            return number(nonTerminalNumbers, nonTerminals, nonTerminal);
+        }
+
+        private static <T> int number(Map<T, Integer> numbers, List<T> objects, T object) {
+            Integer number = numbers.get(object);
+            if (number == null) {
+                number = objects.size();
+                numbers.put(object, number);
+                objects.add(object);
+            }
+            return number;
+        }
+
+        /*
+         * Rules and non-terminals are added as comments. They must neither end
+         * the comment nor contain unicode escapes.
+         */
+        private static String comment(Object object) {
+            return String.valueOf(object).replace('\n', ' ').replace('\r', ' ').replace('\\', '/');
+        }
+
+        private void line(int indent, String line) {
+            for (int i = 0; i < indent; i++) {
+                code.append("    ");
+            }
+            code.append(line).append('\n');
+        }
+
+    }
+
+}
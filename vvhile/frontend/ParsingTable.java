@@ -1,5 +1,7 @@
 package vvhile.frontend;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -10,6 +12,16 @@ import vvhile.util.Pair;
  * A parsing table assigns to every pair of a non-terminal and a token a rule.
  * This rule
  *
+ * Once a parsing table is complete it can be frozen. A frozen parsing table
+ * cannot be changed anymore and is safe to be read by several threads.
+ *
+ * Freezing compiles the table into a dense array with one row per
+ * non-terminal and one column per token. Non-terminals and symbols carry a
+ * unique id which is mapped to their row and column, so that looking up a
+ * rule takes a few array accesses and does not create any objects. The few
+ * tokens that are no symbols, e.g. identifiers and numbers, are compared by
+ * equals().
+ *
  * @author markus
  */
 public class ParsingTable {
@@ -17,6 +29,24 @@ public class ParsingTable {
     // A non-terminal and a token uniquely determine a rule that applies if the
     // token is read while being at the non-terminal
     private final Map<Pair<NonTerminal, Token>, Rule> rules;
+    // a frozen table does not accept new rules
+    private boolean frozen;
+
+    // The dense version of the table. It is built when the table is frozen.
+    // row of a non-terminal plus one, indexed by its id, 0 if not in the table
+    private int[] rows;
+    // column of a symbol plus one, indexed by its id, 0 if not in the table
+    private int[] symbolColumns;
+    // tokens that are no symbols, their columns follow those of the symbols
+    private Token[] otherTokens;
+    // the non-terminal of every row
+    private NonTerminal[] rowNonTerminals;
+    private int symbolCount;
+    private int columnCount;
+    // the rules, row by row
+    private Rule[] table;
+    // the tokens that have a rule, for every row
+    private List<List<Token>> possibleTokens;
 
     /**
      * Creates a new parsing table.
@@ -32,9 +62,13 @@ public class ParsingTable {
      * @param nonTerminal row of rule
      * @param token column of rule
      * @param rule the rule
+     * @throws IllegalStateException if the table is frozen
      */
     public void addRule(NonTerminal nonTerminal, Token token, Rule rule) {
-        Pair p = new Pair<>(nonTerminal, token);
+        if (frozen) {
+            throw new IllegalStateException("The parsing table is frozen and must not be changed.");
+        }
+        Pair<NonTerminal, Token> p = new Pair<>(nonTerminal, token);
         if (rules.containsKey(p)) {
             // The pair of non-terminal and token must be unique
             throw new ParseException("Grammar is not LL(1). "
@@ -44,6 +78,117 @@ public class ParsingTable {
         }
     }
 
+    /**
+     * Freezes the table. Afterwards no rules can be added.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        // number the rows and the columns
+        Map<NonTerminal, Integer> rowNumbers = new HashMap<>();
+        Map<Token, Integer> symbolNumbers = new HashMap<>();
+        List<Token> others = new ArrayList<>();
+        int maxNonTerminalId = -1;
+        int maxSymbolId = -1;
+        for (Pair<NonTerminal, Token> pair : rules.keySet()) {
+            NonTerminal nonTerminal = pair.first();
+            if (!rowNumbers.containsKey(nonTerminal)) {
+                rowNumbers.put(nonTerminal, rowNumbers.size());
+                maxNonTerminalId = Math.max(maxNonTerminalId, nonTerminal.id);
+            }
+            Token token = pair.second();
+            if (token instanceof Token.Symbol) {
+                if (!symbolNumbers.containsKey(token)) {
+                    symbolNumbers.put(token, symbolNumbers.size());
+                    maxSymbolId = Math.max(maxSymbolId, ((Token.Symbol) token).id);
+                }
+            } else if (!others.contains(token)) {
+                others.add(token);
+            }
+        }
+        rows = new int[maxNonTerminalId + 1];
+        rowNonTerminals = new NonTerminal[rowNumbers.size()];
+        rowNumbers.forEach((nonTerminal, row) -> {
+            rows[nonTerminal.id] = row + 1;
+            rowNonTerminals[row] = nonTerminal;
+        });
+        symbolColumns = new int[maxSymbolId + 1];
+        symbolNumbers.forEach((symbol, column) -> symbolColumns[((Token.Symbol) symbol).id] = column + 1);
+        otherTokens = others.toArray(new Token[others.size()]);
+        symbolCount = symbolNumbers.size();
+        columnCount = symbolCount + otherTokens.length;
+        // fill the table
+        table = new Rule[rowNumbers.size() * columnCount];
+        List<List<Token>> tokens = new ArrayList<>(rowNumbers.size());
+        for (int row = 0; row < rowNumbers.size(); row++) {
+            tokens.add(new ArrayList<>());
+        }
+        rules.forEach((pair, rule) -> {
+            int row = rows[pair.first().id] - 1;
+            table[row * columnCount + column(pair.second())] = rule;
+            tokens.get(row).add(pair.second());
+        });
+        for (int row = 0; row < tokens.size(); row++) {
+            tokens.set(row, Collections.unmodifiableList(tokens.get(row)));
+        }
+        possibleTokens = tokens;
+        frozen = true;
+    }
+
+    /*
+     * Returns the column of the token in the dense table or -1 if the token
+     * has none. The table must be frozen.
+     */
+    int column(Token token) {
+        if (token instanceof Token.Symbol) {
+            int id = ((Token.Symbol) token).id;
+            return id < symbolColumns.length ? symbolColumns[id] - 1 : -1;
+        }
+        for (int i = 0; i < otherTokens.length; i++) {
+            if (otherTokens[i].equals(token)) {
+                return symbolCount + i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Returns the row of the non-terminal in the dense table or -1 if the
+     * non-terminal has none. The table must be frozen.
+     */
+    int row(NonTerminal nonTerminal) {
+        int id = nonTerminal.id;
+        return id < rows.length ? rows[id] - 1 : -1;
+    }
+
+    /*
+     * The following methods give the parser generator access to the dense
+     * table. The table must be frozen.
+     */
+    int rowCount() {
+        return rowNonTerminals.length;
+    }
+
+    int columnCount() {
+        return columnCount;
+    }
+
+    NonTerminal nonTerminalAt(int row) {
+        return rowNonTerminals[row];
+    }
+
+    Rule ruleAt(int row, int column) {
+        return table[row * columnCount + column];
+    }
+
+    /**
+     * @return true if the table is frozen
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     /**
      * Returns the rule given by the non-terminal and the token.
      *
@@ -52,18 +197,29 @@ public class ParsingTable {
      * @return a rule (if exists)
      */
     public Rule getRule(NonTerminal nonTerminal, Token token) {
+        if (table != null) {
+            int row = row(nonTerminal);
+            int column = column(token);
+            return row < 0 || column < 0 ? null : table[row * columnCount + column];
+        }
         Pair<NonTerminal, Token> pair = new Pair<>(nonTerminal, token);
         return rules.get(pair);
     }
 
     /**
      * Returns a list with all tokens that share a rule with the given
-     * non-terminal.
+     * non-terminal. The list of a frozen table is computed in advance and
+     * must not be changed.
      *
      * @param nonTerminal a non-terminal
      * @return list of related tokens
      */
     public List<Token> getPossibleTokensFor(NonTerminal nonTerminal) {
+        if (possibleTokens != null) {
+            // precomputed when the table was frozen
+            int row = row(nonTerminal);
+            return row < 0 ? Collections.emptyList() : possibleTokens.get(row);
+        }
         List<Token> possibles = new LinkedList<>();
         rules.keySet().stream().filter(
                 // filter all row-column-pairs if their first coordinate is the
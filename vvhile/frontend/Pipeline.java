@@ -0,0 +1,279 @@
+package vvhile.frontend;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import vvhile.intrep.ASTCompiler;
+import vvhile.intrep.ASTElement;
+import vvhile.util.Buffer;
+import vvhile.util.RingBuffer;
+import vvhile.util.ThreadPerTaskExecutor;
+
+/**
+ * A pipeline connects the stages of a compilation: the scanner, the parser, the
+ * parse tree and the AST-compiler. There are three modes:
+ * <ul>
+ * <li>In threaded mode every stage runs in a thread of its own and the stages
+ * are connected by ring buffers. This is how the stages were designed and
+ * it is needed if the buffers shall be visualized.</li>
+ * <li>In synchronous mode all stages run in the calling thread. Every token is
+ * passed from one stage to the next by a plain method call. There are no
+ * threads, no buffers and no waiting. This is much faster for short inputs,
+ * e.g. the expressions of Hoare triples, and for batch compilation.</li>
+ * <li>In fused mode all stages run in the calling thread, too, but the
+ * output of the parser is passed to the AST-compiler directly. The parser
+ * already checked that the rules fit together, so there is no need to build
+ * a parse tree in order to retranslate the rules. This saves about half of
+ * the objects that are created during a compilation.</li>
+ * </ul>
+ * All modes produce the same syntax tree.
+ *
+ * By default the threaded mode starts a new thread for every stage. If many
+ * sources are compiled concurrently, the stages can be run by a shared
+ * executor instead. Note that the stages of one compilation wait for each
+ * other, so the executor must be able to run at least four tasks at the same
+ * time, e.g. a cached thread pool. In synchronous and fused mode the executor
+ * runs the whole compilation as a single task.
+ *
+ * The stages keep state of their own. A pipeline creates new stages for every
+ * compilation, but the rule set must not be used by several compilations at
+ * the same time.
+ *
+ * @author markus
+ */
+public class Pipeline {
+
+    /**
+     * The mode of execution.
+     */
+    public static enum Mode {
+        THREADED, SYNCHRONOUS, FUSED
+    }
+
+    // capacity of the buffers between the stages in threaded mode
+    private static final int BUFFER_SIZE = 32;
+
+    private final RuleSet ruleSet;
+    private final Mode mode;
+    // null if every stage runs in a thread of its own
+    private final Executor executor;
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param ruleSet grammar
+     * @param mode mode of execution
+     */
+    public Pipeline(RuleSet ruleSet, Mode mode) {
+        this(ruleSet, mode, null);
+    }
+
+    /**
+     * Creates a new pipeline whose compilations are run by the given
+     * executor.
+     *
+     * @param ruleSet grammar
+     * @param mode mode of execution
+     * @param executor executor running the stages, null for a new thread per
+     * stage
+     */
+    public Pipeline(RuleSet ruleSet, Mode mode, Executor executor) {
+        this.ruleSet = ruleSet;
+        this.mode = mode;
+        this.executor = executor;
+    }
+
+    /**
+     * Compiles the given source code.
+     *
+     * @param source source code
+     * @param start the start symbol of the grammar
+     * @return the result of the compilation
+     */
+    public Result compile(String source, NonTerminal start) {
+        return compile(Scanner.getDefaultScanner(source), start);
+    }
+
+    /**
+     * Compiles the tokens produced by the given scanner. The method returns
+     * after the compilation is finished.
+     *
+     * @param scanner a scanner
+     * @param start the start symbol of the grammar
+     * @return the result of the compilation
+     */
+    public Result compile(Scanner scanner, NonTerminal start) {
+        if (mode != Mode.THREADED) {
+            return compileSynchronously(scanner, start);
+        }
+        try {
+            return compileAsync(scanner, start).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Compiles the given source code without waiting for the result.
+     *
+     * @param source source code
+     * @param start the start symbol of the grammar
+     * @return a future that completes with the result of the compilation
+     */
+    public CompletableFuture<Result> compileAsync(String source, NonTerminal start) {
+        return compileAsync(Scanner.getDefaultScanner(source), start);
+    }
+
+    /**
+     * Compiles the tokens produced by the given scanner without waiting for
+     * the result. If one of the stages fails, the future completes
+     * exceptionally. A stage that fails or rejects the input stops the stages
+     * before it, so no stage is left waiting for the next one. In synchronous
+     * and fused mode without an executor the
+     * compilation is done before this method returns.
+     *
+     * @param scanner a scanner
+     * @param start the start symbol of the grammar
+     * @return a future that completes with the result of the compilation
+     */
+    public CompletableFuture<Result> compileAsync(Scanner scanner, NonTerminal start) {
+        if (mode != Mode.THREADED) {
+            if (executor == null) {
+                try {
+                    return CompletableFuture.completedFuture(compileSynchronously(scanner, start));
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            return CompletableFuture.supplyAsync(() -> compileSynchronously(scanner, start), executor);
+        }
+        Buffer<Scanner.ScanObject> scannerToParser = new RingBuffer<>(BUFFER_SIZE);
+        CompletableFuture<Void> scan = scanner.startScan(scannerToParser, executor("Scanner"));
+
+        Parser parser = new Parser(scannerToParser, ruleSet, start);
+        Buffer<Parser.ParseObject> parserToParseTree = new RingBuffer<>(BUFFER_SIZE);
+        CompletableFuture<Boolean> parse = parser.startParsing(start, parserToParseTree, executor("Parser"));
+
+        ParseTree parseTree = new ParseTree(parserToParseTree);
+        Buffer<Parser.ParseObject> parseTreeToASTCompiler = new RingBuffer<>(BUFFER_SIZE);
+        CompletableFuture<Void> retranslate = parseTree.startRetranslation(parseTreeToASTCompiler,
+                executor("Parse tree"));
+
+        ASTCompiler astCompiler = new ASTCompiler(parseTreeToASTCompiler, ruleSet);
+        CompletableFuture<Void> compile = astCompiler.startCompilation(new RingBuffer<>(BUFFER_SIZE),
+                executor("AST-Compiler"));
+
+        // a stage that gives up reads the rest of its input, so that the stages
+        // before it can finish. Stop the scan, so the rest is short.
+        for (CompletableFuture<?> stage : List.of(parse, retranslate, compile)) {
+            stage.whenComplete((v, e) -> {
+                if (e != null || Boolean.FALSE.equals(v)) {
+                    scanner.stopScan();
+                }
+            });
+        }
+
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        CompletableFuture.allOf(parse, retranslate, compile).whenComplete((v, e) -> {
+            if (e == null) {
+                boolean successful = parse.join();
+                if (successful) {
+                    result.complete(new Result(astCompiler.getRoot(), parser.getMessages()));
+                } else {
+                    // the parser read the last token of the scanner, so the
+                    // scan is about to finish. It may have failed.
+                    scan.whenComplete((w, f) -> {
+                        if (f == null) {
+                            result.complete(new Result(null, parser.getMessages()));
+                        } else {
+                            result.completeExceptionally(f instanceof CompletionException ? f.getCause() : f);
+                        }
+                    });
+                }
+            }
+        });
+        // report a failure at once, the other stages may wait for the failed one
+        for (CompletableFuture<?> stage : List.of(scan, parse, retranslate, compile)) {
+            stage.whenComplete((v, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+                }
+            });
+        }
+        return result;
+    }
+
+    private Result compileSynchronously(Scanner scanner, NonTerminal start) {
+        Parser parser = new Parser(ruleSet, start);
+        ASTCompiler astCompiler = new ASTCompiler(ruleSet);
+        boolean successful;
+        if (mode == Mode.FUSED) {
+            successful = parser.parse(start, scanner::nextScanObject, astCompiler::acceptParsed);
+        } else {
+            ParseTree parseTree = new ParseTree();
+            successful = parser.parse(start, scanner::nextScanObject,
+                    next -> parseTree.accept(next, astCompiler::accept));
+        }
+        return new Result(successful ? astCompiler.getRoot() : null, parser.getMessages());
+    }
+
+    private Executor executor(String stage) {
+        return executor == null ? new ThreadPerTaskExecutor(stage) : executor;
+    }
+
+    /**
+     * @return mode of execution
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the rule set of the pipeline
+     */
+    public RuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * The result of a compilation: the root of the syntax tree and the
+     * messages of the parser.
+     */
+    public static class Result {
+
+        private final ASTElement root;
+        private final List<Parser.Message> messages;
+
+        Result(ASTElement root, List<Parser.Message> messages) {
+            this.root = root;
+            this.messages = messages;
+        }
+
+        /**
+         * @return root of the syntax tree or null if the compilation failed
+         */
+        public ASTElement getRoot() {
+            return root;
+        }
+
+        /**
+         * @return messages of the parser
+         */
+        public List<Parser.Message> getMessages() {
+            return messages;
+        }
+
+        /**
+         * @return true if the source matches the grammar
+         */
+        public boolean isSuccessful() {
+            return root != null;
+        }
+
+    }
+
+}
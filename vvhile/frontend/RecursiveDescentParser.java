@@ -0,0 +1,213 @@
+package vvhile.frontend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import static vvhile.frontend.Token.EOF;
+import vvhile.frontend.Scanner.ScanObject;
+
+/**
+ * A recursive-descent parser is the base class of the parsers that are
+ * generated by the ParserGenerator. It behaves exactly like the table-driven
+ * Parser: it passes the same rules and tokens to the sink, in the same order,
+ * and creates the same messages. Instead of a stack of variables and a table
+ * lookup for every non-terminal, the generated parser has a method for every
+ * non-terminal that switches over the column of the current token.
+ *
+ * The methods do not call each other. If a rule continues after a
+ * non-terminal, the method pushes the number of the continuation onto a stack
+ * of integers and returns the number of the non-terminal. This class runs the
+ * non-terminals and continuations in a loop. The grammar may nest as deep as
+ * the program is long, e.g. for sequences of statements, which would
+ * overflow the stack of the thread otherwise.
+ *
+ * A parser keeps the state of the current parse, so it must not be used by
+ * several threads at the same time. Create a new one with the generator
+ * instead, the generated class is shared.
+ *
+ * @author markus
+ * @see ParserGenerator
+ */
+public abstract class RecursiveDescentParser {
+
+    /**
+     * Returned by the method of a non-terminal or a continuation if its rule
+     * was parsed completely.
+     */
+    protected static final int DONE = -1;
+    /**
+     * Returned by the method of a non-terminal or a continuation if the input
+     * does not match.
+     */
+    protected static final int FAILED = -2;
+
+    private final ParsingTable parsingTable;
+    private final List<Parser.Message> messages;
+
+    // the state of the current parse
+    private Supplier<ScanObject> source;
+    private Consumer<Parser.ParseObject> sink;
+    private ScanObject scanObject;
+    private Token nextToken;
+    // column of the next token in the parsing table, -1 if there is none
+    private int column;
+    // the continuations of the rules that are not finished yet
+    private int[] continuations = new int[64];
+    private int depth;
+
+    /**
+     * Creates a new parser.
+     *
+     * @param parsingTable the frozen parsing table the parser was generated
+     * from
+     */
+    protected RecursiveDescentParser(ParsingTable parsingTable) {
+        this.parsingTable = parsingTable;
+        this.messages = new LinkedList<>();
+    }
+
+    /**
+     * Reads from the source and matches the tokens against the grammar. The
+     * matching rules and tokens are passed to the sink. This method runs in
+     * the calling thread. It returns after the end-of-file token was read or
+     * an error occured.
+     *
+     * @param source source of the tokens, e.g. a scanner
+     * @param sink receiver of the rules and tokens, e.g. a parse tree
+     * @return true if the source matches the grammar
+     */
+    public boolean parse(Supplier<ScanObject> source, Consumer<Parser.ParseObject> sink) {
+        messages.clear();
+        this.source = source;
+        this.sink = sink;
+        try {
+            advance();
+            depth = 0;
+            int next = start();
+            while (next != FAILED) {
+                if (next >= 0) {
+                    next = parseNonTerminal(next);
+                } else if (depth > 0) {
+                    next = resume(continuations[--depth]);
+                } else {
+                    break;
+                }
+            }
+            if (next == FAILED) {
+                return false;
+            }
+            messages.add(Parser.finished(scanObject));
+            if (EOF.equals(nextToken)) {
+                sink.accept(EOF);
+                return true;
+            } else {
+                messages.add(Parser.notAtEnd(scanObject));
+                return false;
+            }
+        } finally {
+            // do not keep the input alive
+            this.source = null;
+            this.sink = null;
+            this.scanObject = null;
+            this.nextToken = null;
+        }
+    }
+
+    /**
+     * @return the messages of the last parse
+     */
+    public List<Parser.Message> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    /**
+     * @return the number of the start symbol of the grammar
+     */
+    protected abstract int start();
+
+    /**
+     * Applies the rule of the given non-terminal that matches the next token
+     * and parses its right hand side up to the first non-terminal.
+     *
+     * @param nonTerminal number of a non-terminal
+     * @return the number of the non-terminal to parse next, DONE or FAILED
+     */
+    protected abstract int parseNonTerminal(int nonTerminal);
+
+    /**
+     * Parses the right hand side of a rule from the given continuation up to
+     * the next non-terminal.
+     *
+     * @param continuation number of a continuation
+     * @return the number of the non-terminal to parse next, DONE or FAILED
+     */
+    protected abstract int resume(int continuation);
+
+    /**
+     * Remembers where to continue after the next non-terminal.
+     *
+     * @param continuation number of a continuation
+     */
+    protected final void push(int continuation) {
+        if (depth == continuations.length) {
+            continuations = Arrays.copyOf(continuations, 2 * depth);
+        }
+        continuations[depth++] = continuation;
+    }
+
+    /**
+     * @return the column of the next token in the parsing table, -1 if there
+     * is none
+     */
+    protected final int column() {
+        return column;
+    }
+
+    /**
+     * Passes a rule to the sink.
+     *
+     * @param rule the rule that is applied
+     */
+    protected final void apply(Rule rule) {
+        sink.accept(rule);
+    }
+
+    /**
+     * Matches the next token with the expected one. If they agree, the token
+     * is passed to the sink and the following token is read.
+     *
+     * @param expected the token demanded by the grammar
+     * @return true if the next token is the expected one
+     */
+    protected final boolean match(Token expected) {
+        if (expected.equals(nextToken)) {
+            sink.accept(nextToken);
+            advance();
+            return true;
+        }
+        messages.add(Parser.wrongToken(nextToken, expected, scanObject));
+        return false;
+    }
+
+    /**
+     * Reports that the next token does not fit to any rule of the given
+     * non-terminal.
+     *
+     * @param nonTerminal the current non-terminal
+     * @return FAILED
+     */
+    protected final int noRule(NonTerminal nonTerminal) {
+        messages.add(Parser.noRule(parsingTable, nonTerminal, nextToken, scanObject));
+        return FAILED;
+    }
+
+    private void advance() {
+        scanObject = source.get();
+        nextToken = scanObject.getToken();
+        column = parsingTable.column(nextToken);
+    }
+
+}
@@ -203,6 +203,7 @@ public class RuleSet {
             Collections.reverse(args);
             // Check if all arguments have been read
             if (args.size() != op.getArgClasses().length) {
+                args.clear();
                 throw new IllegalArgumentException("Number of args and sorts don't match.");
             }
             // determine the sorts of the operator arguments...
@@ -219,7 +220,9 @@ public class RuleSet {
                         // assign the expected sort to it
                         args.set(i, expr.setSort(sorts[0]));
                     } else {
-                        // the sorts conflict
+                        // the sorts conflict. Clean up, the rule set may be
+                        // used for the next compilation.
+                        args.clear();
                         throw new ParseException(
                                 "Type conflict: Expression has to be " + sorts[i]
                                 + " but was "
@@ -5,16 +5,25 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.function.Predicate;
 import vvhile.frontend.Token.Symbol;
 import java.io.Reader;
-import java.io.StringReader;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import vvhile.basic.language.BasicRuleSet;
-import vvhile.util.BoundedBuffer;
+import vvhile.util.Buffer;
+import vvhile.util.BufferWriter;
+import vvhile.util.ThreadPerTaskExecutor;
 
 /**
  * A scanner reads a stream of characters and turns them into a stream of
@@ -30,13 +39,24 @@ public class Scanner {
      * appearing in that grammar and scans integers. It terminates the scan for
      * identifiers if special symbols, such as parentheses, appear.
      * 
-     * @param input an input string
+     * @param input an input text, e.g. a string or a mapped source file
      * @return default scanner for that input
      */
-    public static Scanner getDefaultScanner(String input) {
+    public static Scanner getDefaultScanner(CharSequence input) {
+        return getDefaultScanner(input, new BasicRuleSet());
+    }
+
+    /**
+     * Returns a Scanner like getDefaultScanner(CharSequence), but the tokens
+     * are taken from the given rule set instead of a new basic rule set.
+     *
+     * @param input an input text, e.g. a string or a mapped source file
+     * @param ruleSet a rule set, e.g. the basic rule set
+     * @return default scanner for that input
+     */
+    public static Scanner getDefaultScanner(CharSequence input, RuleSet ruleSet) {
         try {
-            RuleSet grammar = new BasicRuleSet();
-            Scanner scanner = new Scanner(input, grammar);
+            Scanner scanner = new Scanner(input, ruleSet);
             scanner.addTerminator(List.of(
                     Integer.valueOf('~'),
                     Integer.valueOf(';'),
@@ -65,16 +85,42 @@ public class Scanner {
         }
     }
 
-    private final TokenTree tokenTree;
+    private static final int ASCII = 128;
+
+    // the automata of the symbols, shared by all scanners with the same
+    // symbols. Symbols are compared by identity.
+    private static final Map<Map<String, Symbol>, Automaton> AUTOMATA = new ConcurrentHashMap<>();
+
+    // all symbols by their input strings
+    private final Map<String, Symbol> symbols = new HashMap<>();
     private Reader input;
+    // the input if it lies in memory, otherwise null. Then input is a view of
+    // it that reads from the same position.
+    private CharSequence text;
+    // position of the character after next in text
+    private int position;
     private Predicate<Integer> terminator;
     private Map<Integer, Subscanner> subscanners;
+    // the symbols compiled into an automaton. It is looked up on demand and
+    // dropped if a symbol is added.
+    private Automaton automaton;
+    // the terminators and subscanners of the ASCII characters, so that the
+    // common case needs neither boxing nor hash lookups. They are tabulated on
+    // demand and dropped if a terminator or a subscanner is added.
+    private boolean[] asciiTerminators;
+    private Subscanner[] asciiSubscanners;
+    // all identifiers read so far, an identifier that occurs several times is
+    // represented by the same token
+    private final Identifiers identifiers = new Identifiers();
     private int next;
 
     private int row;
     private int column;
 
-    private Thread thread;
+    // completes when the scan started by startScan() is finished
+    private volatile CompletableFuture<Void> completion;
+    // set if the scan started by startScan() shall end early
+    private volatile boolean stopped;
 
     /**
      * Create a new Scanner with empty token tree and whitespaces as only
@@ -86,7 +132,6 @@ public class Scanner {
      * @throws java.io.IOException
      */
     public Scanner(InputStream inputStream, RuleSet ruleSet) throws IOException {
-        tokenTree = new TokenTree("");
         subscanners = new HashMap<>();
         terminator = (Integer c) -> {
             return Character.isWhitespace(c);
@@ -111,7 +156,6 @@ public class Scanner {
      * @throws java.io.IOException
      */
     public Scanner(InputStream inputStream) throws IOException {
-        tokenTree = new TokenTree("");
         subscanners = new HashMap<>();
         terminator = (Integer c) -> {
             return Character.isWhitespace(c);
@@ -124,16 +168,15 @@ public class Scanner {
      * terminators. To use the scanner first add tokens, terminators and
      * subscanners.
      *
-     * @param input an input string to be read from
+     * @param input an input text to be read from
      * @throws java.io.IOException
      */
-    public Scanner(String input) throws IOException {
-        tokenTree = new TokenTree("");
+    public Scanner(CharSequence input) throws IOException {
         subscanners = new HashMap<>();
         terminator = (Integer c) -> {
             return Character.isWhitespace(c);
         };
-        setInput(new StringReader(input));
+        setInput(input);
     }
 
     /**
@@ -141,17 +184,16 @@ public class Scanner {
      * terminators. To use the scanner first add tokens, terminators and
      * subscanners.
      *
-     * @param input an input string to be read from
+     * @param input an input text to be read from
      * @param ruleSet a rule set
      * @throws java.io.IOException
      */
-    public Scanner(String input, RuleSet ruleSet) throws IOException {
-        tokenTree = new TokenTree("");
+    public Scanner(CharSequence input, RuleSet ruleSet) throws IOException {
         subscanners = new HashMap<>();
         terminator = (Integer c) -> {
             return Character.isWhitespace(c);
         };
-        setInput(new StringReader(input));
+        setInput(input);
         Grammar.extractTerminals(ruleSet.getRules()).stream().forEach(token -> {
             if (token instanceof Symbol) {
                 addSymbol((Symbol) token);
@@ -162,6 +204,26 @@ public class Scanner {
         }
     }
 
+    /**
+     * Create a new Scanner with the tokens, terminators and subscanners of the
+     * given scanner, but another input. The scanners share their subscanners
+     * and their automaton, so creating a scanner this way is cheap. Use this
+     * constructor to scan many inputs the same way.
+     *
+     * @param input an input text to be read from
+     * @param scanner a scanner whose configuration is copied
+     * @throws java.io.IOException
+     */
+    public Scanner(CharSequence input, Scanner scanner) throws IOException {
+        symbols.putAll(scanner.symbols);
+        subscanners = new HashMap<>(scanner.subscanners);
+        terminator = scanner.terminator;
+        automaton = scanner.automaton;
+        asciiTerminators = scanner.asciiTerminators;
+        asciiSubscanners = scanner.asciiSubscanners;
+        setInput(input);
+    }
+
     /**
      * Read the next token from the input stream. The token will be found in the
      * token tree or is an identifyer, otherwise.
@@ -170,14 +232,26 @@ public class Scanner {
      * @throws IOException
      */
     public Token nextToken() throws IOException {
+        Automaton dfa = automaton;
+        if (dfa == null) {
+            dfa = AUTOMATA.get(symbols);
+            if (dfa == null) {
+                dfa = AUTOMATA.computeIfAbsent(Map.copyOf(symbols), Automaton::new);
+            }
+            automaton = dfa;
+        }
+        if (asciiTerminators == null) {
+            tabulate();
+        }
         skipWhitespaces();
         if (next < 0) {
             // the stream ended (End Of File)
             return Token.EOF;
         }
         // trigger subscanner if next is an entryCharacter
-        if (subscanners.containsKey(next)) {
-            ScanObject result = subscanners.get(next).readToken(next, input);
+        Subscanner subscanner = subscanner(next);
+        if (subscanner != null) {
+            ScanObject result = subscanner.readToken(next, input);
             int rows = result.getLine();
             int cols = result.getPositionInLine();
             next = result.getCodePoint();
@@ -189,30 +263,44 @@ public class Scanner {
             }
             return result.getToken();
         }
-        // remember the position in the token tree
-        TokenTree position = tokenTree;
-        while (position.children.containsKey(next)) {
+        // the offset of the token in the text, if there is one
+        int start = position - 1;
+        // remember the state of the automaton, i.e. the position in the token tree
+        int state = 0;
+        int transition;
+        while ((transition = dfa.transition(state, next)) >= 0) {
             // Step into the tree along read characters
-            position = position.children.get(next);
+            state = transition;
             next();
-            if (next < 0 || terminator.test(next) && !position.children.containsKey(next)) {
+            if (next < 0 || isTerminator(next) && dfa.transition(state, next) < 0) {
                 // the stream ended or a terminator interupts the scan for identifiers
                 // check wether the last part is a token or not (i.e. identifier)
-                if (position.token != null) {
-                    return position.token;
+                if (dfa.tokens[state] != null) {
+                    return dfa.tokens[state];
                 } else {
-                    return new Token.Identifier(position.begin);
+                    String name = dfa.begins[state];
+                    return identifiers.get(name, 0, name.length());
                 }
             }
         }
         // Here, the token tree didn't provide any longer path
-        if (position.token != null) {
+        if (dfa.tokens[state] != null) {
             // There is a valid token in the tree -> return it
-            return position.token;
+            return dfa.tokens[state];
+        } else if (text != null) {
+            // No valid token -> skip an identifier, its name is only copied
+            // out of the text if it was not seen before
+            while (!isTerminator(next)) {
+                next();
+                if (next == -1) {
+                    break;
+                }
+            }
+            return identifiers.get(text, start, next == -1 ? position : position - 1);
         } else {
             // No valid token -> read an identifier instead
-            StringBuilder builder = new StringBuilder(position.begin);
-            while (!terminator.test(next)) {
+            StringBuilder builder = new StringBuilder(dfa.begins[state]);
+            while (!isTerminator(next)) {
                 builder.appendCodePoint(next);
                 next();
                 if (next == -1) {
@@ -220,7 +308,7 @@ public class Scanner {
                     break;
                 }
             }
-            return new Token.Identifier(builder.toString());
+            return identifiers.get(builder, 0, builder.length());
         }
     }
 
@@ -232,23 +320,14 @@ public class Scanner {
      * @param symbol a symbol token
      */
     public void addSymbol(Symbol symbol) {
-        TokenTree position = tokenTree;
-        // step into the token tree along the input string of the symbol
-        String sym = symbol.getSymbol();
-        for (int i = 0; i < sym.length(); i++) {
-            int c = sym.codePointAt(i);
-            // create new child if the path of characters diverges
-            if (!position.children.containsKey(c)) {
-                position.children.put(c, new TokenTree(sym.substring(0, i + 1)));
-            }
-            position = position.children.get(c);
-        }
-        if (symbol.equals(position.token)) {
-            // The symbol is already contained in the tree
-        } else if (position.token != null) {
+        Symbol existing = symbols.get(symbol.getSymbol());
+        if (symbol.equals(existing)) {
+            // The symbol is already known
+        } else if (existing != null) {
             throw new IllegalArgumentException("A different token has the same input string.");
         } else {
-            position.token = symbol;
+            symbols.put(symbol.getSymbol(), symbol);
+            automaton = null;
         }
     }
 
@@ -260,6 +339,7 @@ public class Scanner {
      */
     public final void addSubscanner(int entryCodePoint, Subscanner subparser) {
         subscanners.put(entryCodePoint, subparser);
+        asciiTerminators = null;
     }
 
     /**
@@ -272,6 +352,7 @@ public class Scanner {
     public void addTerminator(int term) {
         // Replace existing terminator by a decorated version
         Predicate old = terminator;
+        asciiTerminators = null;
         terminator = (Integer c) -> {
             return old.test(c) || c == term;
         };
@@ -287,6 +368,7 @@ public class Scanner {
     public void addTerminator(Collection<Integer> terms) {
         // Replace existing terminator by a decorated version
         Predicate old = terminator;
+        asciiTerminators = null;
         terminator = (Integer c) -> {
             return old.test(c) || terms.contains(c);
         };
@@ -302,11 +384,47 @@ public class Scanner {
 
     private void setInput(Reader reader) throws IOException {
         input = reader;
+        text = null;
+        row = 0;
+        column = 0;
+        next();
+    }
+
+    /*
+     * The text is read directly, without a reader. Subscanners get a reader
+     * that shares the position with this scanner.
+     */
+    private void setInput(CharSequence text) throws IOException {
+        this.text = text;
+        position = 0;
+        input = new TextReader();
         row = 0;
         column = 0;
         next();
     }
 
+    /*
+     * Tabulates the terminators and subscanners of the ASCII characters.
+     */
+    private void tabulate() {
+        boolean[] terminators = new boolean[ASCII];
+        Subscanner[] entries = new Subscanner[ASCII];
+        for (int c = 0; c < ASCII; c++) {
+            terminators[c] = terminator.test(c);
+            entries[c] = subscanners.get(c);
+        }
+        asciiSubscanners = entries;
+        asciiTerminators = terminators;
+    }
+
+    private boolean isTerminator(int c) {
+        return c >= 0 && c < ASCII ? asciiTerminators[c] : terminator.test(c);
+    }
+
+    private Subscanner subscanner(int c) {
+        return c >= 0 && c < ASCII ? asciiSubscanners[c] : subscanners.get(c);
+    }
+
     /*
      * Reads until a non-whitespace.
      */
@@ -324,42 +442,128 @@ public class Scanner {
      * Read one character, increase the column counter.
      */
     private void next() throws IOException {
-        next = input.read();
+        if (text != null) {
+            next = position < text.length() ? text.charAt(position++) : -1;
+        } else {
+            next = input.read();
+        }
         column++;
     }
 
+    /*
+     * True if the next character can be read without waiting. A text is
+     * always ready.
+     */
+    private boolean isInputReady() {
+        if (text != null) {
+            return true;
+        }
+        try {
+            return input.ready();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     /**
      * Scanns the stream and passes the token to the buffer. This creates a new
      * thread. The scan ends after reaching the end of file. The scanner then
      * passes Token.EOF to the buffer.
      *
-     * @param buffer A bounded buffer
+     * @param buffer A buffer
      */
-    public void startScan(BoundedBuffer<ScanObject> buffer) {
-        Runnable r = () -> {
+    public void startScan(Buffer<ScanObject> buffer) {
+        startScan(buffer, new ThreadPerTaskExecutor("Scanner"));
+    }
+
+    /**
+     * Scanns the stream and passes the token to the buffer. The scan is run
+     * by the given executor. The executor must not run the scan in the calling
+     * thread, since the buffer makes the scanner wait for its consumer. The
+     * tokens are passed on in batches, but never held back while the scanner
+     * waits for its input. If the scan fails, an error token is passed to the
+     * buffer before the returned future completes exceptionally. The scan can
+     * be ended early by stopScan().
+     *
+     * @param buffer A buffer
+     * @param executor executor running the scan
+     * @return a future that completes when the scan is finished
+     */
+    public CompletableFuture<Void> startScan(Buffer<ScanObject> buffer, Executor executor) {
+        return completion = CompletableFuture.runAsync(() -> {
+            // the tokens are passed on in batches
+            BufferWriter<ScanObject> writer = new BufferWriter<>(buffer);
+            ScanObject scanObject;
             try {
-                Token token;
                 do {
-                    token = nextToken();
-                    buffer.put(new ScanObject(token, row, column, next));
-                } while (token != Token.EOF);
-            } catch (IOException e) {
-                buffer.put(new ScanObject(new Token.Error(e.getMessage()), row, column, next));
+                    if (stopped) {
+                        scanObject = new ScanObject(new Token.Error("Scan stopped."), row, column, next);
+                    } else {
+                        scanObject = nextScanObject();
+                    }
+                    writer.accept(scanObject);
+                    if (!isInputReady()) {
+                        // the next token may take a while, e.g. if the
+                        // input is typed, so pass on the tokens read so far
+                        writer.flush();
+                    }
+                } while (!isLast(scanObject));
+            } catch (Throwable e) {
+                // tell the following stages that no more data will come,
+                // otherwise they wait forever
+                writer.accept(new ScanObject(new Token.Error("Scanning failed: " + e), row, column, next));
+                writer.flush();
+                throw e;
             }
-            thread = null;
-        };
-        // Start the thread
-        (thread = new Thread(r, "Scanner")).start();
+            writer.flush();
+        }, executor);
+    }
+
+    /**
+     * Ends the scan started by startScan(), e.g. because a following stage
+     * failed and does not need any more tokens. Instead of the next token an
+     * error token is passed to the buffer. If the scan waits for input, it
+     * ends after the input was read.
+     */
+    public void stopScan() {
+        stopped = true;
+    }
+
+    /**
+     * Reads the next token together with its position. Unlike nextToken(),
+     * this method does not throw an exception if the input cannot be read.
+     * It returns an error token instead. This method allows to pull tokens
+     * from the scanner without starting a thread.
+     *
+     * @return next scan object
+     */
+    public ScanObject nextScanObject() {
+        try {
+            return new ScanObject(nextToken(), row, column, next);
+        } catch (IOException e) {
+            return new ScanObject(new Token.Error(e.getMessage()), row, column, next);
+        }
+    }
+
+    /**
+     * @param scanObject a scan object
+     * @return true if the scanner does not produce any scan objects after the
+     * given one, i.e. the token is the end-of-file or an error
+     */
+    public static boolean isLast(ScanObject scanObject) {
+        return scanObject.getToken() == Token.EOF || scanObject.getToken() instanceof Token.Error;
     }
 
     /**
      * Wait for the termination of the scan.
      */
     public void join() {
-        while (thread != null) {
+        CompletableFuture<Void> stage = completion;
+        if (stage != null) {
             try {
-                thread.join();
-            } catch (InterruptedException ex) {
+                stage.join();
+            } catch (CompletionException | CancellationException ex) {
+                // the failure is reported by the future
             }
         }
     }
@@ -369,7 +573,7 @@ public class Scanner {
      * An input string gets split into its characters each of which lies in one
      * level of the tree. The token-object sits on the end of the path of characters.
      */
-    private class TokenTree {
+    private static class TokenTree {
 
         private Map<Integer, TokenTree> children;
         // The token can be null. It is only non-null if the path from the root
@@ -385,6 +589,196 @@ public class Scanner {
 
     }
 
+    /*
+     * The automaton is a table driven version of the token tree. Its states are
+     * the nodes of the tree, the root being state 0. Characters are mapped to
+     * classes first: every character that appears in a symbol has a class of
+     * its own, all other characters share class 0 which has no transitions.
+     * The transitions are stored in a single array, one row per state. The
+     * automaton depends on the symbols only and is not changed after it is
+     * built, so scanners of different threads share it.
+     */
+    private static class Automaton {
+
+        private final int[] asciiClasses = new int[ASCII];
+        private final Map<Integer, Integer> otherClasses = new HashMap<>();
+        private final int classes;
+        // transitions[state * classes + class] is the next state or -1
+        private final int[] transitions;
+        private final Token[] tokens;
+        private final String[] begins;
+
+        Automaton(Map<String, Symbol> symbols) {
+            // build the token tree: the input string of a symbol is split
+            // into its characters each of which lies in one level of the tree
+            TokenTree tokenTree = new TokenTree("");
+            for (Symbol symbol : symbols.values()) {
+                TokenTree position = tokenTree;
+                String sym = symbol.getSymbol();
+                for (int i = 0; i < sym.length(); i++) {
+                    int c = sym.codePointAt(i);
+                    // create new child if the path of characters diverges
+                    if (!position.children.containsKey(c)) {
+                        position.children.put(c, new TokenTree(sym.substring(0, i + 1)));
+                    }
+                    position = position.children.get(c);
+                }
+                position.token = symbol;
+            }
+            // number the nodes of the tree in breadth first order
+            List<TokenTree> states = new ArrayList<>();
+            states.add(tokenTree);
+            int count = 1;
+            for (int i = 0; i < states.size(); i++) {
+                for (Map.Entry<Integer, TokenTree> child : states.get(i).children.entrySet()) {
+                    int c = child.getKey();
+                    if (c >= 0 && c < ASCII ? asciiClasses[c] == 0 : !otherClasses.containsKey(c)) {
+                        if (c >= 0 && c < ASCII) {
+                            asciiClasses[c] = count++;
+                        } else {
+                            otherClasses.put(c, count++);
+                        }
+                    }
+                    states.add(child.getValue());
+                }
+            }
+            classes = count;
+            transitions = new int[states.size() * classes];
+            Arrays.fill(transitions, -1);
+            tokens = new Token[states.size()];
+            begins = new String[states.size()];
+            Map<TokenTree, Integer> numbers = new IdentityHashMap<>();
+            for (int i = 0; i < states.size(); i++) {
+                numbers.put(states.get(i), i);
+            }
+            for (int i = 0; i < states.size(); i++) {
+                TokenTree state = states.get(i);
+                tokens[i] = state.token;
+                begins[i] = state.begin;
+                for (Map.Entry<Integer, TokenTree> child : state.children.entrySet()) {
+                    transitions[i * classes + characterClass(child.getKey())] = numbers.get(child.getValue());
+                }
+            }
+        }
+
+        private int characterClass(int c) {
+            if (c >= 0 && c < ASCII) {
+                return asciiClasses[c];
+            }
+            return otherClasses.getOrDefault(c, 0);
+        }
+
+        /*
+         * Returns the next state or -1 if there is no transition.
+         */
+        int transition(int state, int c) {
+            int characterClass = characterClass(c);
+            return characterClass == 0 ? -1 : transitions[state * classes + characterClass];
+        }
+
+    }
+
+    /*
+     * The identifiers are interned in a hash table with open addressing. A
+     * name is looked up by its characters, so a known identifier is found
+     * without creating a string. The table grows if it is half full.
+     */
+    private static class Identifiers {
+
+        private Token.Identifier[] tokens = new Token.Identifier[64];
+        private int[] hashes = new int[64];
+        private int size;
+
+        /*
+         * Returns the identifier whose name is the given part of the text. A
+         * new identifier gets a copy of the name, so it neither keeps the text
+         * alive nor changes with it.
+         */
+        Token.Identifier get(CharSequence text, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+            int mask = tokens.length - 1;
+            for (int i = hash & mask; tokens[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && matches(tokens[i].getName(), text, start, end)) {
+                    return tokens[i];
+                }
+            }
+            Token.Identifier token = new Token.Identifier(text.subSequence(start, end).toString());
+            add(token, hash);
+            return token;
+        }
+
+        private static boolean matches(String name, CharSequence text, int start, int end) {
+            if (name.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (name.charAt(i) != text.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(Token.Identifier token, int hash) {
+            if (2 * (size + 1) > tokens.length) {
+                Token.Identifier[] oldTokens = tokens;
+                int[] oldHashes = hashes;
+                tokens = new Token.Identifier[2 * oldTokens.length];
+                hashes = new int[tokens.length];
+                size = 0;
+                for (int i = 0; i < oldTokens.length; i++) {
+                    if (oldTokens[i] != null) {
+                        add(oldTokens[i], oldHashes[i]);
+                    }
+                }
+            }
+            int mask = tokens.length - 1;
+            int i = hash & mask;
+            while (tokens[i] != null) {
+                i = (i + 1) & mask;
+            }
+            tokens[i] = token;
+            hashes[i] = hash;
+            size++;
+        }
+
+    }
+
+    /*
+     * A reader on the text that is shared with the scanner. Unlike a
+     * StringReader it does not acquire a lock for every character.
+     */
+    private class TextReader extends Reader {
+
+        @Override
+        public int read() {
+            return position < text.length() ? text.charAt(position++) : -1;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int n = Math.min(len, text.length() - position);
+            if (n <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < n; i++) {
+                cbuf[off + i] = text.charAt(position++);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
     /**
      * A subscanner can be triggered by a scanner to scan a complicated token
      * that has no finite representation and therefore doesn't fit into the
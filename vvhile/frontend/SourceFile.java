@@ -0,0 +1,82 @@
+package vvhile.frontend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A source file is the content of a file that is mapped into memory. A scanner
+ * reads it directly, without copying it and without a reader in between.
+ *
+ * The file is expected to be encoded in UTF-8. If it only contains ASCII
+ * characters, every byte is a character and the mapped memory is used as it
+ * is. Otherwise the file is decoded once as a whole.
+ *
+ * @author markus
+ */
+public class SourceFile implements CharSequence {
+
+    /**
+     * Maps the given file into memory.
+     *
+     * @param file path of a source file
+     * @return the content of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static CharSequence map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) < 0) {
+                    // not ASCII
+                    return StandardCharsets.UTF_8.decode(buffer);
+                }
+            }
+            return new SourceFile(buffer, 0, buffer.limit());
+        }
+    }
+
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    private SourceFile(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (char) bytes.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end || end > length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new SourceFile(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] copy = new byte[length];
+        bytes.get(offset, copy);
+        return new String(copy, StandardCharsets.US_ASCII);
+    }
+
+}
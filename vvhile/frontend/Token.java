@@ -1,5 +1,6 @@
 package vvhile.frontend;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import vvhile.intrep.ASTElement;
 
 /**
@@ -21,7 +22,13 @@ public interface Token extends Variable, Parser.ParseObject, ASTElement {
      */
     public static class Symbol implements Token {
 
+        // source of the ids of the symbols
+        private static final AtomicInteger IDS = new AtomicInteger();
+
         private final String symbol;
+        // a unique number, frozen parsing tables use it as an array index.
+        // Symbols are compared by identity, so the id identifies the symbol.
+        final int id = IDS.getAndIncrement();
 
         /**
          * Creates a new symbol token with the given string representation.
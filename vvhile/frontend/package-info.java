@@ -4,6 +4,12 @@
  * transforms a text into a stream of tokens. A parser converts a stream of
  * token into a stream of variables and tokens that are part of a formal language.
  * A formal language is described using a set of rules that are collected in an
- * object of type RuleSet.
+ * object of type RuleSet. A Pipeline connects the stages of a compilation,
+ * either with a thread per stage or synchronously in the calling thread. In
+ * fused mode the output of the parser is compiled without a parse tree. A
+ * CompilerService compiles batches of sources in parallel.
+ * Large source files can be mapped into memory as a SourceFile and scanned
+ * without a reader. The ParserGenerator turns a grammar into a specialized
+ * parser that is faster than the table-driven one.
  */
 package vvhile.frontend;
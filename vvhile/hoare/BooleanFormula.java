@@ -1,12 +1,12 @@
 package vvhile.hoare;
 
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.Objects;
 import vvhile.basic.language.BasicOperators;
 import vvhile.intrep.Expression;
 import vvhile.intrep.State;
 import vvhile.intrep.Operator;
+import vvhile.util.Sets;
 
 /**
  * A boolean formula is an expression of sort boolean.
@@ -24,6 +24,9 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
     @Override
     public BooleanFormula subtitute(Expression expression, Variable variable);
 
+    @Override
+    public BooleanFormula subtitute(java.util.Map<Variable, ? extends Expression> substitution);
+
     @Override
     public BooleanFormula fillBlackBox(BlackBox blackBox, BooleanFormula substitution);
 
@@ -92,6 +95,23 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
             super(Expression.SORT_BOOLEAN, name, index);
         }
 
+        /**
+         * Create a new boolean variable with an index that is resolved to the
+         * given slot.
+         *
+         * @param name name of the variable
+         * @param index index of the variable
+         * @param slot position of the variable in a slot state
+         */
+        public BooleanVariable(String name, String index, int slot) {
+            super(Expression.SORT_BOOLEAN, name, index, slot);
+        }
+
+        @Override
+        public BooleanVariable resolve(int slot) {
+            return new BooleanVariable(getName(), getIndex(), slot);
+        }
+
         /**
          * If the variable that is to be substituted agrees with this object,
          * then the given expression is returned. In that case the expression
@@ -114,6 +134,18 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
             }
         }
 
+        @Override
+        public BooleanFormula subtitute(java.util.Map<Variable, ? extends Expression> substitution) {
+            Expression expression = substitution.get(this);
+            if (expression == null) {
+                return this;
+            } else if (expression instanceof BooleanFormula) {
+                return (BooleanFormula) expression;
+            } else {
+                throw new IllegalArgumentException("The expression has to be a boolean formular.");
+            }
+        }
+
         @Override
         public BooleanFormula fillBlackBox(BlackBox blackBox, BooleanFormula substitution) {
             return this;
@@ -140,6 +172,11 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
             return this;
         }
 
+        @Override
+        public BooleanFormula subtitute(java.util.Map<Variable, ? extends Expression> substitution) {
+            return this;
+        }
+
         @Override
         public BooleanFormula fillBlackBox(BlackBox blackBox, BooleanFormula substitution) {
             return this;
@@ -170,6 +207,11 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
             return (BooleanFormula) super.subtitute(expression, variable);
         }
 
+        @Override
+        public BooleanFormula subtitute(java.util.Map<Variable, ? extends Expression> substitution) {
+            return (BooleanFormula) super.subtitute(substitution);
+        }
+
         @Override
         public BooleanFormula fillBlackBox(BlackBox blackBox, BooleanFormula substitution) {
             return (BooleanFormula) super.fillBlackBox(blackBox, substitution);
@@ -179,14 +221,18 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
 
     /**
      * A black box represents a boolean formular of unknown content. An object
-     * of this class remembers all substitutions applied to it. A black box can
-     * be replaced (aka filled) by an actual boolean formular. All substitutions
-     * are then applied to it.
+     * of this class remembers all substitutions applied to it. They are
+     * composed to one simultaneous substitution. A black box can be replaced
+     * (aka filled) by an actual boolean formular. The substitution is then
+     * applied to it in a single pass.
      */
     public static class BlackBox implements BooleanFormula {
 
         private final String name;
-        private final java.util.List<Substitution> substitutions;
+        // the composition of all substitutions, must not be modified
+        private final java.util.Map<Variable, Expression> substitution;
+        // computed on first use. Zero if not computed yet.
+        private int hash;
 
         /**
          * Create a new black box.
@@ -194,8 +240,12 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
          * @param name name of the blackbox
          */
         public BlackBox(String name) {
+            this(name, Collections.emptyMap());
+        }
+
+        private BlackBox(String name, java.util.Map<Variable, Expression> substitution) {
             this.name = name;
-            this.substitutions = new LinkedList<>();
+            this.substitution = substitution;
         }
 
         /**
@@ -224,7 +274,8 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
 
         /**
          * As a black box is not an actual expression all substitutions applied
-         * to it are stored in an internal list.
+         * to it are remembered. The substitution is composed with the ones that
+         * were applied before.
          *
          * @param expression an expression replacing the variable
          * @param variable a variable
@@ -232,10 +283,15 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
          */
         @Override
         public BlackBox subtitute(Expression expression, Variable variable) {
-            BlackBox subtituted = new BlackBox(name);
-            subtituted.substitutions.addAll(substitutions);
-            subtituted.substitutions.add(new Substitution(variable, expression));
-            return subtituted;
+            return subtitute(Collections.singletonMap(variable, expression));
+        }
+
+        @Override
+        public BlackBox subtitute(java.util.Map<Variable, ? extends Expression> substitution) {
+            if (substitution.isEmpty()) {
+                return this;
+            }
+            return new BlackBox(name, Collections.unmodifiableMap(Expression.compose(this.substitution, substitution)));
         }
 
         @Override
@@ -262,12 +318,7 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
          * applied to it
          */
         public BooleanFormula fill(BooleanFormula expression) {
-            BooleanFormula substituted = expression;
-            // apply all substitutions
-            for (Substitution s : substitutions) {
-                substituted = substituted.subtitute(s.expression, s.variable);
-            }
-            return substituted;
+            return substitution.isEmpty() ? expression : expression.subtitute(substitution);
         }
 
         @Override
@@ -277,19 +328,29 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
 
         @Override
         public String toString(boolean latex) {
-            StringBuilder builder = new StringBuilder(name);
-            substitutions.stream().forEach((s) -> {
-                builder.append(s.toString(latex));
+            if (substitution.isEmpty()) {
+                return name;
+            }
+            StringBuilder builder = new StringBuilder(name).append('[');
+            substitution.forEach((variable, expression) -> {
+                if (builder.charAt(builder.length() - 1) != '[') {
+                    builder.append(", ");
+                }
+                builder.append(expression.toString(latex)).append('/').append(variable.toString(latex));
             });
-            return builder.toString();
+            return builder.append(']').toString();
         }
 
         @Override
         public int hashCode() {
-            int hash = 7;
-            hash = 17 * hash + Objects.hashCode(this.name);
-            hash = 17 * hash + Objects.hashCode(this.substitutions);
-            return hash;
+            int h = hash;
+            if (h == 0) {
+                h = 7;
+                h = 17 * h + Objects.hashCode(this.name);
+                h = 17 * h + Objects.hashCode(this.substitution);
+                hash = h;
+            }
+            return h;
         }
 
         @Override
@@ -307,7 +368,7 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
             if (!Objects.equals(this.name, other.name)) {
                 return false;
             }
-            return Objects.equals(this.substitutions, other.substitutions);
+            return Objects.equals(this.substitution, other.substitution);
         }
 
         @Override
@@ -320,56 +381,6 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
             return name.equals(blackBox.name) ? fill(substitution) : this;
         }
 
-        /*
-         * An instance of this class remembers the data of an substitution. This
-         * is merely a data class.
-         */
-        private class Substitution {
-
-            private final Variable variable;
-            private final Expression expression;
-
-            public Substitution(Variable variable, Expression expression) {
-                this.variable = variable;
-                this.expression = expression;
-            }
-
-            @Override
-            public String toString() {
-                return toString(false);
-            }
-
-            private String toString(boolean latex) {
-                return "[" + expression.toString(latex) + '/' + variable.toString(latex) + ']';
-            }
-
-            @Override
-            public int hashCode() {
-                int hash = 7;
-                hash = 37 * hash + Objects.hashCode(this.variable);
-                hash = 37 * hash + Objects.hashCode(this.expression);
-                return hash;
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                if (this == obj) {
-                    return true;
-                }
-                if (obj == null) {
-                    return false;
-                }
-                if (getClass() != obj.getClass()) {
-                    return false;
-                }
-                final Substitution other = (Substitution) obj;
-                if (!Objects.equals(this.variable, other.variable)) {
-                    return false;
-                }
-                return Objects.equals(this.expression, other.expression);
-            }
-        }
-
     }
 
     /**
@@ -381,6 +392,10 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
         private final boolean forAll;
         private final Variable variable;
         private final Expression argument;
+        // the argument is immutable, so the hash code is computed once
+        private final int hash;
+        // the free variables, computed on first use
+        private java.util.Set<Variable> freeVariables;
 
         /**
          * Create a new quantified expression.
@@ -393,6 +408,33 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
             this.forAll = forAll;
             this.variable = variable;
             this.argument = argument;
+            int h = 7;
+            h = 89 * h + (forAll ? 1 : 0);
+            h = 89 * h + Objects.hashCode(variable);
+            h = 89 * h + Objects.hashCode(argument);
+            this.hash = h;
+        }
+
+        /**
+         * @return true if this is a "for all" expression, false if it is an
+         * "exists" expression
+         */
+        public boolean isForAll() {
+            return forAll;
+        }
+
+        /**
+         * @return the quantified variable
+         */
+        public Variable getVariable() {
+            return variable;
+        }
+
+        /**
+         * @return the quantified expression
+         */
+        public Expression getArgument() {
+            return argument;
         }
 
         /**
@@ -421,6 +463,13 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
             return new Quantifier(forAll, newVar, argument.subtitute(newVar, this.variable).subtitute(expression, variable));
         }
 
+        @Override
+        public BooleanFormula subtitute(java.util.Map<Variable, ? extends Expression> substitution) {
+            // as above, the quantified variable is renamed first
+            Variable newVar = new Variable(this.variable.getSort(), this.variable.getName() + "'");
+            return new Quantifier(forAll, newVar, argument.subtitute(newVar, this.variable).subtitute(substitution));
+        }
+
         @Override
         public String getSort() {
             return SORT_BOOLEAN;
@@ -433,10 +482,13 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
 
         @Override
         public java.util.Set<Variable> freeVariables() {
-            // by definition the quantified variable is not free, remove it from
-            // the set of free variables of the quantified expression
-            java.util.Set<Variable> variables = argument.freeVariables();
-            variables.remove(variable);
+            java.util.Set<Variable> variables = freeVariables;
+            if (variables == null) {
+                // by definition the quantified variable is not free, remove it from
+                // the set of free variables of the quantified expression
+                variables = Sets.without(argument.freeVariables(), variable);
+                freeVariables = variables;
+            }
             return variables;
         }
 
@@ -460,10 +512,6 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
 
         @Override
         public int hashCode() {
-            int hash = 7;
-            hash = 89 * hash + (this.forAll ? 1 : 0);
-            hash = 89 * hash + Objects.hashCode(this.variable);
-            hash = 89 * hash + Objects.hashCode(this.argument);
             return hash;
         }
 
@@ -479,6 +527,9 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
                 return false;
             }
             final Quantifier other = (Quantifier) obj;
+            if (this.hash != other.hash) {
+                return false;
+            }
             if (this.forAll != other.forAll) {
                 return false;
             }
@@ -499,7 +550,8 @@ public interface BooleanFormula extends Expression, HoareOrBoolean {
 
         @Override
         public BooleanFormula fillBlackBox(BlackBox blackBox, BooleanFormula substitution) {
-            return new Quantifier(forAll, variable, argument.fillBlackBox(blackBox, substitution));
+            Expression filled = argument.fillBlackBox(blackBox, substitution);
+            return filled == argument ? this : new Quantifier(forAll, variable, filled);
         }
 
     }
@@ -1,10 +1,14 @@
 package vvhile.hoare;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import vvhile.intrep.Expression;
 import vvhile.intrep.Statement;
 import vvhile.intrep.Statement.*;
+import vvhile.util.Pair;
 import static vvhile.hoare.BasicHoare.*;
 import static vvhile.hoare.BooleanFormula.*;
 
@@ -21,12 +25,16 @@ public class HoareProver {
     // Loop invariants created along the construction are saved in this list
     private final List<BooleanFormula.BlackBox> blackBoxes;
 
+    // Leading assignments of the compositions visited so far, see getPrefix
+    private final Map<Composition, Pair<Map<Expression.Variable, Expression>, Statement>> prefixes;
+
     /**
      * Creates a new Hoare prover. To construct a Hoare tree a new instance of
      * this class should be created.
      */
     public HoareProver() {
         this.blackBoxes = new LinkedList<>();
+        this.prefixes = new IdentityHashMap<>();
     }
 
     /**
@@ -121,6 +129,15 @@ public class HoareProver {
             Expression t = assignment.getExpression();
             return (BooleanFormula) post.subtitute(t, x);
         } else if (statement instanceof Composition) {
+            // The leading assignments are undone by one simultaneous
+            // substitution, so the post-condition is traversed only once
+            Pair<Map<Expression.Variable, Expression>, Statement> prefix = getPrefix(statement);
+            if (prefix.first() != null) {
+                BooleanFormula rest = prefix.second() == null
+                        ? post
+                        : getWeakestLiberalPrecondition(prefix.second(), post);
+                return rest.subtitute(prefix.first());
+            }
             // For a composition "the best" pre-condition can be calulated one after the other
             Composition composition = (Composition) statement;
             Statement s1 = composition.getFirstStatement();
@@ -148,6 +165,42 @@ public class HoareProver {
         }
     }
 
+    /*
+     * Splits the statement into its leading assignments and the rest. The first
+     * component is the simultaneous substitution that undoes the leading
+     * assignments, i.e. the substitution that calculates their weakest liberal
+     * pre-condition, or null if the statement does not start with one. The
+     * second component is the rest of the statement, or null if it consists of
+     * assignments only. The result is remembered for every composition, as the
+     * rules visit each suffix of a long sequence again and would otherwise walk
+     * it to its end every time.
+     */
+    private Pair<Map<Expression.Variable, Expression>, Statement> getPrefix(Statement statement) {
+        if (statement instanceof Assignment) {
+            Assignment assignment = (Assignment) statement;
+            return new Pair<>(Collections.singletonMap(assignment.getVariable(), assignment.getExpression()), null);
+        } else if (!(statement instanceof Composition)) {
+            return new Pair<>(null, statement);
+        }
+        Composition composition = (Composition) statement;
+        Pair<Map<Expression.Variable, Expression>, Statement> prefix = prefixes.get(composition);
+        if (prefix == null) {
+            Pair<Map<Expression.Variable, Expression>, Statement> first = getPrefix(composition.getFirstStatement());
+            if (first.second() != null) {
+                // the first statement does not consist of assignments only
+                prefix = new Pair<>(null, composition);
+            } else {
+                Pair<Map<Expression.Variable, Expression>, Statement> second = getPrefix(composition.getSecondStatement());
+                // the second statement has to be undone first
+                prefix = new Pair<>(second.first() == null
+                        ? first.first()
+                        : Expression.compose(second.first(), first.first()), second.second());
+            }
+            prefixes.put(composition, prefix);
+        }
+        return prefix;
+    }
+
     /*
      * Create a new black box with the index increased by one. Remember it.
      */
@@ -193,15 +246,20 @@ public class HoareProver {
         } else if (triple.getProgram() instanceof While) {
             While whl = (While) triple.getProgram();
             BooleanFormula b = whl.getCondition();
-            // Check if a black box was created for the loop invariant
+            // Check if a black box was created for the loop invariant. Inside
+            // a composition the pre-condition may be the black box of another
+            // statement, e.g. of a following loop. Then the post-condition is
+            // not of the form {I and not b} and the while rule does not fit.
             if (triple.getPreCondition() instanceof BooleanFormula.BlackBox) {
-                return whileRule(triple.getPreCondition());
-            } else {
-                // Introduce a black box and create a new cons-rule
-                BooleanFormula p = getWeakestLiberalPrecondition(whl, triple.getPostCondition());
-                BooleanFormula q = and(p, not(b));
-                return consRule(p, q);
+                Rule rule = whileRule(triple.getPreCondition());
+                if (rule.applicable(triple)) {
+                    return rule;
+                }
             }
+            // Introduce a black box and create a new cons-rule
+            BooleanFormula p = getWeakestLiberalPrecondition(whl, triple.getPostCondition());
+            BooleanFormula q = and(p, not(b));
+            return consRule(p, q);
         } else if (triple.getProgram() instanceof Statement.BlackBox) {
             return blackBoxAxiom();
         } else {
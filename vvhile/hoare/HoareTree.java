@@ -102,6 +102,9 @@ public class HoareTree {
 
     /**
      * Replaces every occurance the given blackbox by the give boolean formular.
+     * The tree is not changed. Subtrees and formulas that do not contain the
+     * blackbox are shared with the resulting tree, so filling a blackbox only
+     * creates the nodes on the paths to its occurances.
      *
      * @param blackbox a blackbox
      * @param substitution a boolean formular
@@ -117,11 +120,13 @@ public class HoareTree {
         } else if (node instanceof HoareTriple) {
             // For a Hoare triple do the substitution within the pre- and post-condition
             HoareTriple triple = (HoareTriple) node;
-            newNode = new HoareTriple(
-                    triple.getPreCondition().fillBlackBox(blackbox, substitution),
-                    triple.getProgram(),
-                    triple.getPostCondition().fillBlackBox(blackbox, substitution)
-            );
+            BooleanFormula pre = triple.getPreCondition().fillBlackBox(blackbox, substitution);
+            BooleanFormula post = triple.getPostCondition().fillBlackBox(blackbox, substitution);
+            if (pre == triple.getPreCondition() && post == triple.getPostCondition()) {
+                newNode = triple;
+            } else {
+                newNode = new HoareTriple(pre, triple.getProgram(), post);
+            }
         } else if (node == null) {
             throw new NullPointerException("A node of the Hoare tree was null");
         } else {
@@ -129,12 +134,22 @@ public class HoareTree {
                     "Dont know what to do with instance of " + node.getClass());
         }
         // Apply the substitution within all the branches
-        HoareTree[] newChildren = new HoareTree[children.length];
+        HoareTree[] newChildren = null;
         for (int i = 0; i < children.length; i++) {
-            newChildren[i] = children[i].fillBlackBox(blackbox, substitution);
+            HoareTree child = children[i].fillBlackBox(blackbox, substitution);
+            if (child != children[i]) {
+                if (newChildren == null) {
+                    newChildren = children.clone();
+                }
+                newChildren[i] = child;
+            }
+        }
+        if (newNode == node && newChildren == null) {
+            // the blackbox does not occur in this tree
+            return this;
         }
         // Assemble all substituted components to a new Hoare tree
-        return new HoareTree(newNode, rule, newChildren);
+        return new HoareTree(newNode, rule, newChildren == null ? children : newChildren);
     }
 
     /**
@@ -5,6 +5,10 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import javax.swing.event.ChangeListener;
 import static vvhile.basic.language.BasicTokens.L_PAREN;
 import vvhile.frontend.Grammar;
@@ -13,7 +17,9 @@ import vvhile.frontend.Rule;
 import vvhile.frontend.RuleSet;
 import vvhile.frontend.Token;
 import vvhile.frontend.Variable;
-import vvhile.util.BoundedBuffer;
+import vvhile.util.Buffer;
+import vvhile.util.BufferReader;
+import vvhile.util.ThreadPerTaskExecutor;
 
 /**
  * An AST-compiler compiles data from a parse tree to an abstract syntax tree.
@@ -23,10 +29,11 @@ import vvhile.util.BoundedBuffer;
 public class ASTCompiler {
 
     private final RuleSet ruleSet;
-    private final BoundedBuffer<Parser.ParseObject> parseStream;
+    private final Buffer<Parser.ParseObject> parseStream;
     private final Stack<ASTElement> stack;
     private final Stack<Object> save;
-    private Thread thread;
+    // completes when the compilation is finished
+    private volatile CompletableFuture<Void> completion;
     private final Map<String, Expression.Variable> vars;
 
     /**
@@ -37,7 +44,7 @@ public class ASTCompiler {
      * @param parseStream
      * @param ruleSet
      */
-    public ASTCompiler(BoundedBuffer<Parser.ParseObject> parseStream, RuleSet ruleSet) {
+    public ASTCompiler(Buffer<Parser.ParseObject> parseStream, RuleSet ruleSet) {
         this.parseStream = parseStream;
         this.stack = new Stack<>();
         this.save = new Stack<>();
@@ -45,26 +52,93 @@ public class ASTCompiler {
         this.vars = new HashMap<>();
     }
 
-    public void startCompilation(BoundedBuffer<Parser.ParseObject> buffer) {
-        Runnable r = () -> {
-            boolean finished = false;
-            Parser.ParseObject next;
-            do {
-                next = parseStream.get();
-                if (next instanceof Token) {
-                    addTokenBottomUp((Token) next);
-                    finished = Token.EOF.equals(next);
-                } else if (next instanceof Rule) {
-                    addRuleBottomUp((Rule) next);
+    /**
+     * Creates a new AST-compiler without an input buffer. Use the
+     * accept()-method to feed it with data.
+     *
+     * @param ruleSet
+     */
+    public ASTCompiler(RuleSet ruleSet) {
+        this(null, ruleSet);
+    }
+
+    public void startCompilation(Buffer<Parser.ParseObject> buffer) {
+        startCompilation(buffer, new ThreadPerTaskExecutor("AST-Compiler"));
+    }
+
+    /**
+     * Starts compiling the data given by the parse stream. The compilation is
+     * run by the given executor. If it fails, the rest of the parse stream is
+     * read, so that the parse tree does not wait forever, and the future
+     * completes exceptionally.
+     *
+     * @param buffer output buffer
+     * @param executor executor running the compilation
+     * @return a future that completes when the compilation is finished
+     */
+    public CompletableFuture<Void> startCompilation(Buffer<Parser.ParseObject> buffer, Executor executor) {
+        return completion = CompletableFuture.runAsync(() -> {
+            // data is read in batches
+            BufferReader<Parser.ParseObject> reader = new BufferReader<>(parseStream);
+            Parser.ParseObject next = null;
+            try {
+                boolean finished;
+                do {
+                    next = reader.get();
+                    finished = accept(next);
+                } while (!finished);
+            } catch (RuntimeException e) {
+                // the parse tree waits until its output is read
+                while (next == null || !Parser.isLast(next)) {
+                    next = reader.get();
                 }
-            } while (!finished);
-            // Remove the eof-token
-            stack.pop();
-            thread = null;
-        };
-        // Start the thread.
-        (thread = new Thread(r, "AST-Compiler")).start();
-        // TODO pass things to buffer.
+                throw e;
+            }
+            // TODO pass things to buffer.
+        }, executor);
+    }
+
+    /**
+     * Processes a single object of the retranslated parse stream. This method
+     * allows to compile in the calling thread.
+     *
+     * @param next a token or a rule
+     * @return true if the end-of-file token was read and the compilation is
+     * finished
+     */
+    public boolean accept(Parser.ParseObject next) {
+        if (Token.EOF.equals(next) || next instanceof Token.Error) {
+            // The eof-token is not part of the syntax tree. An error token
+            // means the parser failed and no more data will come.
+            return true;
+        } else if (next instanceof Token) {
+            addTokenBottomUp((Token) next);
+        } else if (next instanceof Rule) {
+            addRuleBottomUp((Rule) next);
+        }
+        return false;
+    }
+
+    /**
+     * Processes a single object of the parser output, i.e. before it is
+     * retranslated by a parse tree. The LL(1)-rules created for common
+     * beginnings are rewrite rules that are applied after the tokens they
+     * cover, so the original rule can be compiled right away. All other rules
+     * of the LL(1)-grammar only branch to a rewrite rule and are skipped.
+     * Thus the output of a successful parse is compiled without building a
+     * parse tree.
+     *
+     * @param next a token or a rule produced by a parser
+     * @return true if the end-of-file token was read and the compilation is
+     * finished
+     */
+    public boolean acceptParsed(Parser.ParseObject next) {
+        if (next instanceof Grammar.RewriteRule) {
+            return accept(((Grammar.RewriteRule) next).getOriginalRule());
+        } else if (next instanceof Rule) {
+            return false;
+        }
+        return accept(next);
     }
 
     private void addTokenBottomUp(Token token) {
@@ -151,10 +225,12 @@ public class ASTCompiler {
      * Wait for the termination of the compilation.
      */
     public void join() {
-        while (thread != null) {
+        CompletableFuture<Void> stage = completion;
+        if (stage != null) {
             try {
-                thread.join();
-            } catch (InterruptedException ex) {
+                stage.join();
+            } catch (CompletionException | CancellationException ex) {
+                // the failure is reported by the future
             }
         }
     }
@@ -0,0 +1,31 @@
+package vvhile.intrep;
+
+/**
+ * A compiled expression is the result of the expression compiler. It computes
+ * the value of an expression in a given state like Expression.getValue(), but
+ * without walking the expression and dispatching through its operators. A
+ * compiled expression is immutable and can be evaluated by several threads at
+ * the same time.
+ *
+ * @author markus
+ * @see ExpressionCompiler
+ */
+public abstract class CompiledExpression {
+
+    /**
+     * Determines the value of the expression in the given state.
+     *
+     * @param state a state
+     * @return the value of the expression in the given state
+     */
+    public abstract Object evaluate(State state);
+
+    /**
+     * @return true if the value does not depend on the state, i.e. the
+     * expression was folded to a constant
+     */
+    public boolean isConstant() {
+        return false;
+    }
+
+}
@@ -0,0 +1,34 @@
+package vvhile.intrep;
+
+/**
+ * An execution limit exception is thrown by an interpreter if a program runs
+ * longer than allowed, either because it executed too many steps or because it
+ * exceeded its time limit.
+ *
+ * @author markus
+ */
+public class ExecutionLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long steps;
+
+    /**
+     * Creates a new execution limit exception.
+     *
+     * @param message a message
+     * @param steps number of steps executed until the limit was reached
+     */
+    public ExecutionLimitException(String message, long steps) {
+        super(message);
+        this.steps = steps;
+    }
+
+    /**
+     * @return number of steps executed until the limit was reached
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+}
@@ -3,9 +3,9 @@ package vvhile.intrep;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Objects;
 import vvhile.hoare.BooleanFormula;
+import vvhile.util.Sets;
 
 /**
  * An expression is a formular of a given type, called sort, that can be
@@ -67,6 +67,37 @@ public interface Expression extends ASTElement {
      */
     public Expression subtitute(Expression expression, Variable variable);
 
+    /**
+     * Replaces every occurrence of the variables in the map by their
+     * expressions simultaneously, i.e. the expressions that are plugged in are
+     * not substituted again. The expression is traversed only once, no matter
+     * how many variables are replaced.
+     *
+     * @param substitution maps variables to the expressions replacing them
+     * @return the expression after every occurrence of the variables is
+     * replaced by their expressions
+     */
+    public Expression subtitute(java.util.Map<Variable, ? extends Expression> substitution);
+
+    /**
+     * Composes two simultaneous substitutions. Applying the result is the same
+     * as applying the first substitution and then the second one.
+     *
+     * @param first the substitution that is applied first
+     * @param second the substitution that is applied afterwards
+     * @return a substitution that does both at once
+     */
+    public static java.util.Map<Variable, Expression> compose(java.util.Map<Variable, ? extends Expression> first,
+            java.util.Map<Variable, ? extends Expression> second) {
+        java.util.Map<Variable, Expression> composed = new java.util.LinkedHashMap<>();
+        // the expressions plugged in by the first substitution are subject to
+        // the second one
+        first.forEach((variable, expression) -> composed.put(variable, expression.subtitute(second)));
+        // the other variables are only substituted by the second one
+        second.forEach(composed::putIfAbsent);
+        return composed;
+    }
+
     /**
      * Tries to replace a subExpression of this expression by the given
      * expression. This is a useful method for theorem provers.
@@ -93,11 +124,15 @@ public interface Expression extends ASTElement {
     public Expression setSort(String newSort);
 
     /**
+     * The set is computed only once and shared, it must not be modified.
+     *
      * @return set of all free variables appearing in the expression.
      */
     public java.util.Set<Variable> freeVariables();
 
     /**
+     * The set is computed only once and shared, it must not be modified.
+     *
      * @return set of all constants appearing in the expression.
      */
     public java.util.Set<Constant> constants();
@@ -128,6 +163,10 @@ public interface Expression extends ASTElement {
 
         private final String sort;
         private final Object value;
+        // constants are immutable, so the hash code is computed once
+        private final int hash;
+        // the set containing this constant, created on first use
+        private java.util.Set<Constant> constants;
 
         /**
          * Creates a new constant of the given value and sort.
@@ -138,6 +177,10 @@ public interface Expression extends ASTElement {
         public Constant(String sort, Object value) {
             this.sort = sort;
             this.value = value;
+            int h = 3;
+            h = 97 * h + Objects.hashCode(sort);
+            h = 97 * h + Objects.hashCode(value);
+            this.hash = h;
         }
 
         @Override
@@ -155,6 +198,11 @@ public interface Expression extends ASTElement {
             return this;
         }
 
+        @Override
+        public Expression subtitute(java.util.Map<Variable, ? extends Expression> substitution) {
+            return this;
+        }
+
         @Override
         public String toString(boolean latex) {
             String string = value == null ? (latex ? "\\sim" : "~") : value.toString();
@@ -178,16 +226,16 @@ public interface Expression extends ASTElement {
 
         @Override
         public java.util.Set<Constant> constants() {
-            java.util.Set<Constant> constants = new HashSet<>();
-            constants.add(this);
-            return constants;
+            java.util.Set<Constant> result = constants;
+            if (result == null) {
+                result = Collections.singleton(this);
+                constants = result;
+            }
+            return result;
         }
 
         @Override
         public int hashCode() {
-            int hash = 3;
-            hash = 97 * hash + Objects.hashCode(this.sort);
-            hash = 97 * hash + Objects.hashCode(this.value);
             return hash;
         }
 
@@ -203,6 +251,9 @@ public interface Expression extends ASTElement {
                 return false;
             }
             final Constant other = (Constant) obj;
+            if (this.hash != other.hash) {
+                return false;
+            }
             if (!Objects.equals(this.sort, other.sort)) {
                 return false;
             }
@@ -232,6 +283,15 @@ public interface Expression extends ASTElement {
         private final String sort;
         private final String name;
         private final String index;
+        // position of the variable in a slot state, negative if not resolved
+        private final int slot;
+        // variables are looked up in hash maps all the time
+        private final int hash;
+        // the result of the last call of setSort(). Occurrences of the same
+        // variable share one instance, so they get the same sorted variable.
+        private volatile Variable sorted;
+        // the set containing this variable, created on first use
+        private java.util.Set<Variable> freeVariables;
 
         /**
          * Creates a new variable of the given name and sort.
@@ -252,9 +312,30 @@ public interface Expression extends ASTElement {
          * @param index an index
          */
         public Variable(String sort, String name, String index) {
+            this(sort, name, index, -1);
+        }
+
+        /**
+         * Creates a new variable of the given name, index and sort that is
+         * resolved to the given slot. The slot does not take part in the
+         * comparison of variables.
+         *
+         * @param sort a sort
+         * @param name a name
+         * @param index an index
+         * @param slot position of the variable in a slot state, negative if
+         * the variable is not resolved
+         * @see SlotLayout
+         */
+        public Variable(String sort, String name, String index, int slot) {
             this.sort = sort;
             this.name = name;
             this.index = index;
+            this.slot = slot;
+            int h = 5;
+            h = 67 * h + Objects.hashCode(name);
+            h = 67 * h + Objects.hashCode(index);
+            this.hash = h;
         }
 
         @Override
@@ -272,6 +353,12 @@ public interface Expression extends ASTElement {
             return equals(variable) ? expression : this;
         }
 
+        @Override
+        public Expression subtitute(java.util.Map<Variable, ? extends Expression> substitution) {
+            Expression expression = substitution.get(this);
+            return expression == null ? this : expression;
+        }
+
         /**
          * @return the name of the variable
          */
@@ -286,6 +373,24 @@ public interface Expression extends ASTElement {
             return index;
         }
 
+        /**
+         * @return position of the variable in a slot state, negative if the
+         * variable is not resolved
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        /**
+         * Returns the same variable, but resolved to the given slot.
+         *
+         * @param slot position of the variable in a slot state
+         * @return the resolved variable
+         */
+        public Variable resolve(int slot) {
+            return new Variable(sort, name, index, slot);
+        }
+
         @Override
         public String toString(boolean latex) {
             if (showSorts) {
@@ -303,11 +408,17 @@ public interface Expression extends ASTElement {
         @Override
         public Expression setSort(String newSort) {
             if (SORT_UNKNOWN.equals(sort) || "Object".equals(sort)) {
+                Variable result = sorted;
+                if (result != null && result.sort.equals(newSort)) {
+                    return result;
+                }
                 if (SORT_BOOLEAN.equals(newSort)) {
-                    return new BooleanFormula.BooleanVariable(name, index);
+                    result = new BooleanFormula.BooleanVariable(name, index, slot);
                 } else {
-                    return new Variable(newSort, name, index);
+                    result = new Variable(newSort, name, index, slot);
                 }
+                sorted = result;
+                return result;
             } else {
                 throw new IllegalStateException("Sort is already known and must not be changed.");
             }
@@ -315,16 +426,16 @@ public interface Expression extends ASTElement {
 
         @Override
         public java.util.Set<Variable> freeVariables() {
-            java.util.Set<Variable> fv = new HashSet<>();
-            fv.add(this);
-            return fv;
+            java.util.Set<Variable> result = freeVariables;
+            if (result == null) {
+                result = Collections.singleton(this);
+                freeVariables = result;
+            }
+            return result;
         }
 
         @Override
         public int hashCode() {
-            int hash = 5;
-            hash = 67 * hash + Objects.hashCode(this.name);
-            hash = 67 * hash + Objects.hashCode(this.index);
             return hash;
         }
 
@@ -340,6 +451,9 @@ public interface Expression extends ASTElement {
                 return false;
             }
             final Variable other = (Variable) obj;
+            if (this.hash != other.hash) {
+                return false;
+            }
             if (!Objects.equals(this.name, other.name)) {
                 return false;
             }
@@ -383,6 +497,26 @@ public interface Expression extends ASTElement {
         private final Operator interpretation;
         private final boolean infix;
         private final boolean parentheses;
+        // the arguments are immutable, so the hash code is computed once
+        // instead of walking the whole tree every time. It is computed on
+        // first use, many functions are never hashed. Zero if not computed yet.
+        private int hash;
+        // what may occur in the arguments, see occurrences(). The arguments
+        // never change, so it is computed by the constructor and can be read
+        // by any thread.
+        private final long occurrences;
+        // the free variables and constants of the arguments, computed on
+        // first use. Null if not computed yet.
+        private java.util.Set<Variable> freeVariables;
+        private java.util.Set<Constant> constants;
+        // the function compiled by the ExpressionCompiler, null if it was not
+        // compiled yet
+        private CompiledExpression compiled;
+
+        // the bits of the occurrences: a bit for every class of variables with
+        // the same hash code modulo VARIABLE_BITS and a bit for black boxes
+        private static final int VARIABLE_BITS = 63;
+        private static final long BLACK_BOX = 1L << 63;
 
         /**
          * Creates a new function from the given data. It is important that the
@@ -426,6 +560,22 @@ public interface Expression extends ASTElement {
             this.interpretation = interpretation;
             this.infix = infix;
             this.parentheses = parentheses;
+            this.occurrences = occurrences(args);
+        }
+
+        /**
+         * Creates a function that agrees with this one except for the
+         * arguments. A function of sort boolean creates a boolean function.
+         *
+         * @param newArgs the arguments of the new function
+         * @return a new function
+         */
+        public Function withArgs(Expression[] newArgs) {
+            if (Expression.SORT_BOOLEAN.equals(sort)) {
+                return new BooleanFormula.BooleanFunction(argSorts, newArgs, interpretation, infix, parentheses);
+            } else {
+                return new Function(argSorts, sort, newArgs, interpretation, infix, parentheses);
+            }
         }
 
         /**
@@ -435,6 +585,28 @@ public interface Expression extends ASTElement {
             return args;
         }
 
+        /**
+         * @return the sorts of the arguments
+         */
+        public String[] getArgSorts() {
+            return argSorts;
+        }
+
+        /**
+         * @return true if this function is shown in infix notation
+         */
+        public boolean isInfix() {
+            return infix;
+        }
+
+        /**
+         * @return true if the string representation of this function is
+         * enclosed with parentheses
+         */
+        public boolean hasParentheses() {
+            return parentheses;
+        }
+
         /**
          * @return the operator used for interpreting/evaluating this expression
          */
@@ -444,31 +616,99 @@ public interface Expression extends ASTElement {
 
         @Override
         public Object getValue(State state) {
-            Object[] argValues = new Object[args.length];
-            // Determine the value of all arguments in the given state...
-            for (int i = 0; i < args.length; i++) {
-                argValues[i] = args[i].getValue(state);
-                if (argValues[i] == null) {
-                    throw new IllegalArgumentException("One of the arguments has no value.");
-                }
+            // functions with one or two arguments do not need an array
+            switch (args.length) {
+                case 1:
+                    return interpretation.apply(argumentValue(0, state));
+                case 2:
+                    return interpretation.apply(argumentValue(0, state), argumentValue(1, state));
+                default:
+                    Object[] argValues = new Object[args.length];
+                    // Determine the value of all arguments in the given state...
+                    for (int i = 0; i < args.length; i++) {
+                        argValues[i] = argumentValue(i, state);
+                    }
+                    // ...and use them as arguments for the interpretation operator
+                    return interpretation.apply(argValues);
             }
-            // ...and use them as arguments for the interpretation operator
-            return interpretation.evaluate(argValues);
+        }
+
+        /**
+         * Compiles the function the first time this method is called.
+         *
+         * @return the compiled function
+         * @see ExpressionCompiler
+         */
+        CompiledExpression compiled() {
+            CompiledExpression result = compiled;
+            if (result == null) {
+                result = ExpressionCompiler.compile(this);
+                compiled = result;
+            }
+            return result;
+        }
+
+        private Object argumentValue(int i, State state) {
+            Object value = args[i].getValue(state);
+            if (value == null) {
+                throw new IllegalArgumentException("One of the arguments has no value.");
+            }
+            return value;
         }
 
         @Override
         public Expression subtitute(Expression expression, Variable variable) {
-            Expression[] newArgs = new Expression[args.length];
+            if ((occurrences & occurrence(variable)) == 0) {
+                // the variable does not occur, nothing has to be copied
+                return this;
+            }
+            Expression[] newArgs = null;
             // the substitution has to be done for every argument
             for (int i = 0; i < args.length; i++) {
-                newArgs[i] = args[i].subtitute(expression, variable);
+                Expression arg = args[i].subtitute(expression, variable);
+                if (arg != args[i]) {
+                    if (newArgs == null) {
+                        newArgs = args.clone();
+                    }
+                    newArgs[i] = arg;
+                }
             }
+            // If nothing changed, this function is shared with the result.
             // If this is a boolean formular the result should again be a boolean formular.
-            if (Expression.SORT_BOOLEAN.equals(sort)) {
-                return new BooleanFormula.BooleanFunction(argSorts, newArgs, interpretation, infix, parentheses);
-            } else {
-                return new Function(argSorts, sort, newArgs, interpretation, infix, parentheses);
+            return newArgs == null ? this : withArgs(newArgs);
+        }
+
+        @Override
+        public Expression subtitute(java.util.Map<Variable, ? extends Expression> substitution) {
+            long variables = 0;
+            for (Variable variable : substitution.keySet()) {
+                variables |= occurrence(variable);
             }
+            return subtitute(substitution, variables);
+        }
+
+        /*
+         * Substitutes simultaneously, the occurrence bits of the substituted
+         * variables are computed only once for the whole expression.
+         */
+        private Expression subtitute(java.util.Map<Variable, ? extends Expression> substitution, long variables) {
+            if ((occurrences & variables) == 0) {
+                // none of the variables occurs, nothing has to be copied
+                return this;
+            }
+            Expression[] newArgs = null;
+            for (int i = 0; i < args.length; i++) {
+                Expression arg = args[i] instanceof Function
+                        ? ((Function) args[i]).subtitute(substitution, variables)
+                        : args[i].subtitute(substitution);
+                if (arg != args[i]) {
+                    if (newArgs == null) {
+                        newArgs = args.clone();
+                    }
+                    newArgs[i] = arg;
+                }
+            }
+            return newArgs == null ? this : withArgs(newArgs);
         }
 
         @Override
@@ -523,28 +763,40 @@ public interface Expression extends ASTElement {
 
         @Override
         public java.util.Set<Variable> freeVariables() {
-            java.util.Set<Variable> fv = new HashSet<>();
-            for (Expression expression : args) {
-                fv.addAll(expression.freeVariables());
+            java.util.Set<Variable> fv = freeVariables;
+            if (fv == null) {
+                fv = Collections.emptySet();
+                for (Expression expression : args) {
+                    fv = Sets.union(fv, expression.freeVariables());
+                }
+                freeVariables = fv;
             }
             return fv;
         }
 
         @Override
         public java.util.Set<Constant> constants() {
-            java.util.Set<Constant> constants = new HashSet<>();
-            for (Expression expression : args) {
-                constants.addAll(expression.constants());
+            java.util.Set<Constant> result = constants;
+            if (result == null) {
+                result = Collections.emptySet();
+                for (Expression expression : args) {
+                    result = Sets.union(result, expression.constants());
+                }
+                constants = result;
             }
-            return constants;
+            return result;
         }
 
         @Override
         public int hashCode() {
-            int hash = 3;
-            hash = 97 * hash + Arrays.deepHashCode(this.args);
-            hash = 97 * hash + Objects.hashCode(this.interpretation);
-            return hash;
+            int h = hash;
+            if (h == 0) {
+                h = 3;
+                h = 97 * h + Arrays.hashCode(this.args);
+                h = 97 * h + Objects.hashCode(this.interpretation);
+                hash = h;
+            }
+            return h;
         }
 
         @Override
@@ -559,7 +811,11 @@ public interface Expression extends ASTElement {
                 return false;
             }
             final Function other = (Function) obj;
-            if (!Arrays.deepEquals(this.args, other.args)) {
+            // most unequal functions already differ in their hash codes
+            if (hashCode() != other.hashCode()) {
+                return false;
+            }
+            if (!Arrays.equals(this.args, other.args)) {
                 return false;
             }
             return Objects.equals(this.interpretation, other.interpretation);
@@ -582,10 +838,7 @@ public interface Expression extends ASTElement {
                     }
                 }
                 if (found) {
-                    if (Expression.SORT_BOOLEAN.equals(sort)) {
-                        return new BooleanFormula.BooleanFunction(argSorts, subs, interpretation, infix, parentheses);
-                    }
-                    return new Function(argSorts, sort, subs, interpretation, infix, parentheses);
+                    return withArgs(subs);
                 } else {
                     return null;
                 }
@@ -594,17 +847,47 @@ public interface Expression extends ASTElement {
 
         @Override
         public Expression fillBlackBox(BooleanFormula.BlackBox blackBox, BooleanFormula substitution) {
-            Expression[] newArgs = new Expression[args.length];
+            if ((occurrences & BLACK_BOX) == 0) {
+                return this;
+            }
+            Expression[] newArgs = null;
             // the substitution has to be done for every argument
             for (int i = 0; i < args.length; i++) {
-                newArgs[i] = args[i].fillBlackBox(blackBox, substitution);
+                Expression arg = args[i].fillBlackBox(blackBox, substitution);
+                if (arg != args[i]) {
+                    if (newArgs == null) {
+                        newArgs = args.clone();
+                    }
+                    newArgs[i] = arg;
+                }
             }
+            // Untouched arguments are shared with the result.
             // If this is a boolean formular the result should again be a boolean formular.
-            if (Expression.SORT_BOOLEAN.equals(sort)) {
-                return new BooleanFormula.BooleanFunction(argSorts, newArgs, interpretation, infix, parentheses);
-            } else {
-                return new Function(argSorts, sort, newArgs, interpretation, infix, parentheses);
+            return newArgs == null ? this : withArgs(newArgs);
+        }
+
+        /*
+         * A summary of the variables and black boxes in the arguments. If the
+         * bit of a variable is not set, the variable does not occur. Black
+         * boxes and quantifiers change under every substitution, so they set
+         * all bits.
+         */
+        private static long occurrences(Expression[] args) {
+            long result = 0;
+            for (Expression arg : args) {
+                if (arg instanceof Function) {
+                    result |= ((Function) arg).occurrences;
+                } else if (arg instanceof Variable) {
+                    result |= occurrence((Variable) arg);
+                } else if (!(arg instanceof Constant)) {
+                    result |= ~0L;
+                }
             }
+            return result;
+        }
+
+        private static long occurrence(Variable variable) {
+            return 1L << ((variable.hashCode() & Integer.MAX_VALUE) % VARIABLE_BITS);
         }
     }
 
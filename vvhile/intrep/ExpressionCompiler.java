@@ -0,0 +1,515 @@
+package vvhile.intrep;
+
+import vvhile.basic.language.BasicOperators;
+import vvhile.basic.language.Integers;
+
+/**
+ * The expression compiler turns an expression into a tree of closures. The
+ * closures of the basic operators do their computation directly instead of
+ * calling the operator of the function, and variables are read from the state
+ * without further checks. In a slot state a resolved variable is a single
+ * array access, see SlotLayout.
+ *
+ * While compiling, subexpressions that consist of basic operators and
+ * constants only are evaluated once and replaced by their value. Apart from
+ * that a compiled expression behaves exactly like the expression itself: it
+ * evaluates all arguments from left to right, even those of conjunctions and
+ * disjunctions, and returns the same values and throws the same exceptions.
+ * Expressions the compiler does not know, e.g. quantifiers, are evaluated by
+ * their getValue()-method.
+ *
+ * Compiling takes about as long as evaluating the expression once, so it pays
+ * off for expressions that are evaluated over and over again, e.g. loop
+ * conditions.
+ *
+ * @author markus
+ * @see CompiledExpression
+ */
+public final class ExpressionCompiler {
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression an expression
+     * @return the compiled expression
+     */
+    public static CompiledExpression compile(Expression expression) {
+        if (expression instanceof Expression.Constant) {
+            return new Constant(expression.getValue(null));
+        } else if (expression instanceof Expression.Variable) {
+            return new Variable((Expression.Variable) expression);
+        } else if (expression instanceof Expression.Function) {
+            return function((Expression.Function) expression);
+        } else {
+            return new Interpreted(expression);
+        }
+    }
+
+    private static CompiledExpression function(Expression.Function function) {
+        Operator<?> operator = function.getInterpretation();
+        Expression[] args = function.getArgs();
+        CompiledExpression[] compiled = new CompiledExpression[args.length];
+        boolean constant = true;
+        for (int i = 0; i < args.length; i++) {
+            compiled[i] = compile(args[i]);
+            constant &= compiled[i].isConstant();
+        }
+        CompiledExpression result = basic(operator, compiled);
+        if (result == null) {
+            // any other operator is called the usual way
+            switch (compiled.length) {
+                case 1:
+                    return new Unary(operator, compiled[0]);
+                case 2:
+                    return new Binary(operator, compiled[0], compiled[1]);
+                default:
+                    return new Nary(operator, compiled);
+            }
+        }
+        if (constant) {
+            // the basic operators do not depend on anything but their
+            // arguments, so the value can be computed right now
+            try {
+                return new Constant(result.evaluate(null));
+            } catch (RuntimeException e) {
+                // e.g. a division by zero, which has to happen when the
+                // expression is evaluated, if at all
+            }
+        }
+        return result;
+    }
+
+    /*
+     * The closure of a basic operator, null if the operator is not one of
+     * them. The operators are compared with the fields of BasicOperators at
+     * compile time.
+     */
+    private static CompiledExpression basic(Operator<?> operator, CompiledExpression[] args) {
+        if (args.length == 1) {
+            if (operator == BasicOperators.NOT) {
+                return new Not(args[0]);
+            } else if (operator == BasicOperators.NEGATE) {
+                return new Negate(args[0]);
+            }
+        } else if (args.length == 2) {
+            CompiledExpression a = args[0];
+            CompiledExpression b = args[1];
+            if (operator == BasicOperators.AND) {
+                return new And(a, b);
+            } else if (operator == BasicOperators.OR) {
+                return new Or(a, b);
+            } else if (operator == BasicOperators.IMPLIES) {
+                return new Implies(a, b);
+            } else if (operator == BasicOperators.IMPLIED_BY) {
+                return new ImpliedBy(a, b);
+            } else if (operator == BasicOperators.PLUS) {
+                return new Plus(a, b);
+            } else if (operator == BasicOperators.MINUS) {
+                return new Minus(a, b);
+            } else if (operator == BasicOperators.TIMES) {
+                return new Times(a, b);
+            } else if (operator == BasicOperators.DIV) {
+                return new Divide(a, b);
+            } else if (operator == BasicOperators.LESS_THAN) {
+                return new LessThan(a, b);
+            } else if (operator == BasicOperators.LESS_EQUAL) {
+                return new LessEqual(a, b);
+            } else if (operator == BasicOperators.GREATER_EQUAL) {
+                return new GreaterEqual(a, b);
+            } else if (operator == BasicOperators.GREATER_THAN) {
+                return new GreaterThan(a, b);
+            } else if (operator == BasicOperators.EQUALS) {
+                return new Equals(a, b);
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Checks the value of an argument of a function the same way the function
+     * expression does.
+     */
+    private static Object argument(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("One of the arguments has no value.");
+        }
+        return value;
+    }
+
+    private static class Constant extends CompiledExpression {
+
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return value;
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+
+    }
+
+    private static class Variable extends CompiledExpression {
+
+        private final Expression.Variable variable;
+
+        Variable(Expression.Variable variable) {
+            this.variable = variable;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return state.getValueFor(variable);
+        }
+
+    }
+
+    /*
+     * Expressions that are not compiled are evaluated by themselves.
+     */
+    private static class Interpreted extends CompiledExpression {
+
+        private final Expression expression;
+
+        Interpreted(Expression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return expression.getValue(state);
+        }
+
+    }
+
+    private static class Unary extends CompiledExpression {
+
+        private final Operator<?> operator;
+        private final CompiledExpression a;
+
+        Unary(Operator<?> operator, CompiledExpression a) {
+            this.operator = operator;
+            this.a = a;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return operator.apply(argument(a.evaluate(state)));
+        }
+
+    }
+
+    private static class Binary extends CompiledExpression {
+
+        private final Operator<?> operator;
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        Binary(Operator<?> operator, CompiledExpression a, CompiledExpression b) {
+            this.operator = operator;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return operator.apply(argument(a.evaluate(state)), argument(b.evaluate(state)));
+        }
+
+    }
+
+    private static class Nary extends CompiledExpression {
+
+        private final Operator<?> operator;
+        private final CompiledExpression[] args;
+
+        Nary(Operator<?> operator, CompiledExpression[] args) {
+            this.operator = operator;
+            this.args = args;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            Object[] values = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                values[i] = argument(args[i].evaluate(state));
+            }
+            return operator.apply(values);
+        }
+
+    }
+
+    /*
+     * The closures of the basic operators. Every operator has a class of its
+     * own, so that the just-in-time compiler can inline the computation.
+     */
+    private static class Not extends CompiledExpression {
+
+        private final CompiledExpression a;
+
+        Not(CompiledExpression a) {
+            this.a = a;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return !(Boolean) argument(a.evaluate(state));
+        }
+
+    }
+
+    private static class Negate extends CompiledExpression {
+
+        private final CompiledExpression a;
+
+        Negate(CompiledExpression a) {
+            this.a = a;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.negate(argument(a.evaluate(state)));
+        }
+
+    }
+
+    private static class And extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        And(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            boolean x = (Boolean) argument(a.evaluate(state));
+            boolean y = (Boolean) argument(b.evaluate(state));
+            return x & y;
+        }
+
+    }
+
+    private static class Or extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        Or(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            boolean x = (Boolean) argument(a.evaluate(state));
+            boolean y = (Boolean) argument(b.evaluate(state));
+            return x | y;
+        }
+
+    }
+
+    private static class Implies extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        Implies(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            boolean x = (Boolean) argument(a.evaluate(state));
+            boolean y = (Boolean) argument(b.evaluate(state));
+            return !x | y;
+        }
+
+    }
+
+    private static class ImpliedBy extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        ImpliedBy(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            boolean x = (Boolean) argument(a.evaluate(state));
+            boolean y = (Boolean) argument(b.evaluate(state));
+            return x | !y;
+        }
+
+    }
+
+    private static class Plus extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        Plus(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.add(argument(a.evaluate(state)), argument(b.evaluate(state)));
+        }
+
+    }
+
+    private static class Minus extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        Minus(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.subtract(argument(a.evaluate(state)), argument(b.evaluate(state)));
+        }
+
+    }
+
+    private static class Times extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        Times(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.multiply(argument(a.evaluate(state)), argument(b.evaluate(state)));
+        }
+
+    }
+
+    private static class Divide extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        Divide(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.divide(argument(a.evaluate(state)), argument(b.evaluate(state)));
+        }
+
+    }
+
+    private static class LessThan extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        LessThan(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.compare(argument(a.evaluate(state)), argument(b.evaluate(state))) < 0;
+        }
+
+    }
+
+    private static class LessEqual extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        LessEqual(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.compare(argument(a.evaluate(state)), argument(b.evaluate(state))) <= 0;
+        }
+
+    }
+
+    private static class GreaterEqual extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        GreaterEqual(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.compare(argument(a.evaluate(state)), argument(b.evaluate(state))) >= 0;
+        }
+
+    }
+
+    private static class GreaterThan extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        GreaterThan(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.compare(argument(a.evaluate(state)), argument(b.evaluate(state))) > 0;
+        }
+
+    }
+
+    private static class Equals extends CompiledExpression {
+
+        private final CompiledExpression a;
+        private final CompiledExpression b;
+
+        Equals(CompiledExpression a, CompiledExpression b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Object evaluate(State state) {
+            return Integers.equal(argument(a.evaluate(state)), argument(b.evaluate(state)));
+        }
+
+    }
+
+}
@@ -0,0 +1,143 @@
+package vvhile.intrep;
+
+import java.util.Arrays;
+import java.util.Objects;
+import vvhile.hoare.BooleanFormula;
+import vvhile.util.WeakInterner;
+
+/**
+ * The expression factory hash-conses expressions: structurally equal
+ * expressions are represented by one canonical instance, and so are their
+ * subexpressions. A formula that is built up by the Hoare prover or the
+ * theorem prover over and over again then shares its nodes with the earlier
+ * versions. Comparing two canonical expressions mostly stops at the hash code
+ * or at identical subexpressions, instead of walking the whole trees.
+ *
+ * Two nodes are only merged if they agree in everything, including the
+ * sorts, the slots of variables and the parentheses of functions, so that a
+ * canonical expression looks exactly like the original one. Black boxes are
+ * never merged, every black box stands for a formula of its own.
+ *
+ * Canonical expressions are only weakly referenced, so expressions that are
+ * not used any more are still garbage collected.
+ *
+ * @author markus
+ */
+public final class ExpressionFactory {
+
+    private static final WeakInterner<Expression> NODES = new WeakInterner<>(Expression::hashCode,
+            ExpressionFactory::sameNode);
+
+    private ExpressionFactory() {
+    }
+
+    /**
+     * Returns the canonical instance of the given expression. If the
+     * expression is new, its subexpressions are replaced by their canonical
+     * instances. Interning an expression that is already canonical, or whose
+     * subexpressions are, takes constant time.
+     *
+     * @param expression an expression
+     * @return the canonical expression that is structurally equal to the
+     * given one
+     */
+    public static Expression intern(Expression expression) {
+        if (expression == null || expression instanceof BooleanFormula.BlackBox) {
+            return expression;
+        }
+        // the nodes are compared with identical subexpressions, so this finds
+        // the expression if its subexpressions are canonical already
+        Expression canonical = NODES.get(expression);
+        if (canonical != null) {
+            return canonical;
+        }
+        return NODES.intern(withCanonicalChildren(expression));
+    }
+
+    /**
+     * Returns the canonical instance of the given boolean formula.
+     *
+     * @param formula a boolean formula
+     * @return the canonical formula that is structurally equal to the given
+     * one
+     */
+    public static BooleanFormula intern(BooleanFormula formula) {
+        return (BooleanFormula) intern((Expression) formula);
+    }
+
+    /**
+     * @return number of canonical expressions that are still in use
+     */
+    public static int size() {
+        return NODES.size();
+    }
+
+    private static Expression withCanonicalChildren(Expression expression) {
+        if (expression instanceof Expression.Function) {
+            Expression.Function function = (Expression.Function) expression;
+            Expression[] args = function.getArgs();
+            Expression[] canonicalArgs = null;
+            for (int i = 0; i < args.length; i++) {
+                Expression arg = intern(args[i]);
+                if (arg != args[i]) {
+                    if (canonicalArgs == null) {
+                        canonicalArgs = args.clone();
+                    }
+                    canonicalArgs[i] = arg;
+                }
+            }
+            return canonicalArgs == null ? function : function.withArgs(canonicalArgs);
+        } else if (expression instanceof BooleanFormula.Quantifier) {
+            BooleanFormula.Quantifier quantifier = (BooleanFormula.Quantifier) expression;
+            Expression variable = intern(quantifier.getVariable());
+            Expression argument = intern(quantifier.getArgument());
+            if (variable != quantifier.getVariable() || argument != quantifier.getArgument()) {
+                return new BooleanFormula.Quantifier(quantifier.isForAll(), (Expression.Variable) variable, argument);
+            }
+        }
+        // constants and variables have no subexpressions
+        return expression;
+    }
+
+    /*
+     * Two nodes are the same if they agree in all their data and their
+     * subexpressions are identical.
+     */
+    private static boolean sameNode(Expression a, Expression b) {
+        if (a.getClass() != b.getClass()) {
+            return false;
+        }
+        if (a instanceof Expression.Constant) {
+            return a.equals(b);
+        } else if (a instanceof Expression.Variable) {
+            Expression.Variable x = (Expression.Variable) a;
+            Expression.Variable y = (Expression.Variable) b;
+            return x.equals(y) && Objects.equals(x.getSort(), y.getSort()) && x.getSlot() == y.getSlot();
+        } else if (a instanceof Expression.Function) {
+            Expression.Function f = (Expression.Function) a;
+            Expression.Function g = (Expression.Function) b;
+            if (f.getInterpretation() != g.getInterpretation()
+                    || f.isInfix() != g.isInfix()
+                    || f.hasParentheses() != g.hasParentheses()
+                    || !Objects.equals(f.getSort(), g.getSort())
+                    || !Arrays.equals(f.getArgSorts(), g.getArgSorts())
+                    || f.getArgs().length != g.getArgs().length) {
+                return false;
+            }
+            for (int i = 0; i < f.getArgs().length; i++) {
+                if (f.getArgs()[i] != g.getArgs()[i]) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (a instanceof BooleanFormula.Quantifier) {
+            BooleanFormula.Quantifier p = (BooleanFormula.Quantifier) a;
+            BooleanFormula.Quantifier q = (BooleanFormula.Quantifier) b;
+            return p.isForAll() == q.isForAll()
+                    && p.getVariable() == q.getVariable()
+                    && p.getArgument() == q.getArgument();
+        }
+        return a == b;
+    }
+
+}
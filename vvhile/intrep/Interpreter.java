@@ -0,0 +1,197 @@
+package vvhile.intrep;
+
+import vvhile.hoare.BooleanFormula;
+
+/**
+ * An interpreter executes a statement in a given state until it terminates.
+ * There are two modes of execution:
+ * <ul>
+ * <li>In small-step mode the statement is run step by step. Every step creates
+ * a new configuration, exactly as the run()-method of the statements describe
+ * it. Use this mode for debugging or tracing.</li>
+ * <li>In big-step mode the statement is evaluated directly. Assignments,
+ * compositions, if- and while-statements are executed to completion without
+ * creating configurations or new statements. The state is changed in place.
+ * Functions are compiled by the ExpressionCompiler the first time they are
+ * evaluated. Use this mode for batch execution.</li>
+ * </ul>
+ * Both modes count steps the same way: A step is one transition of the
+ * small-step semantics. Hence, the mode does not change the number of steps a
+ * program needs. Optionally the number of steps and the running
+ * time can be limited. If a limit is reached an ExecutionLimitException is
+ * thrown.
+ *
+ * An interpreter is not thread safe. Use a separate instance for every thread.
+ *
+ * @author markus
+ */
+public class Interpreter {
+
+    /**
+     * The mode of execution.
+     */
+    public static enum Mode {
+        SMALL_STEP, BIG_STEP
+    }
+
+    // the time limit is only checked every so many steps
+    private static final long TIME_CHECK_INTERVAL = 1024;
+
+    private final Mode mode;
+    private final long maxSteps;
+    private final long timeout;
+
+    private long steps;
+    private long deadline;
+
+    /**
+     * Creates a new interpreter in big-step mode without limits.
+     */
+    public Interpreter() {
+        this(Mode.BIG_STEP);
+    }
+
+    /**
+     * Creates a new interpreter without limits.
+     *
+     * @param mode mode of execution
+     */
+    public Interpreter(Mode mode) {
+        this(mode, 0, 0);
+    }
+
+    /**
+     * Creates a new interpreter.
+     *
+     * @param mode mode of execution
+     * @param maxSteps maximal number of steps of one execution, 0 for no limit
+     * @param timeout maximal running time of one execution in milliseconds, 0
+     * for no limit
+     */
+    public Interpreter(Mode mode, long maxSteps, long timeout) {
+        if (maxSteps < 0 || timeout < 0) {
+            throw new IllegalArgumentException("Limits must not be negative.");
+        }
+        this.mode = mode;
+        this.maxSteps = maxSteps == 0 ? Long.MAX_VALUE : maxSteps;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Executes the statement in the given state until it terminates.
+     *
+     * @param statement a statement
+     * @param state a state
+     * @return the resulting state
+     * @throws ExecutionLimitException if the step or time limit is reached
+     */
+    public State run(Statement statement, State state) {
+        steps = 0;
+        deadline = timeout == 0 ? 0 : System.nanoTime() + timeout * 1_000_000;
+        if (mode == Mode.SMALL_STEP) {
+            return smallStep(statement, state);
+        } else {
+            execute(statement, state);
+            return state;
+        }
+    }
+
+    /**
+     * @return mode of execution
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return number of steps of the last execution
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    private State smallStep(Statement statement, State state) {
+        Configuration configuration = new Configuration(statement, state);
+        while (configuration.getProgram() != null) {
+            step();
+            configuration = configuration.getProgram().run(configuration.getState());
+        }
+        return configuration.getState();
+    }
+
+    private void execute(Statement statement, State state) {
+        // the second statement of a composition is executed in the same call,
+        // so long sequences do not need deep recursion. A composition takes no
+        // step of its own, it runs the first step of its first statement.
+        while (statement instanceof Statement.Composition) {
+            Statement.Composition composition = (Statement.Composition) statement;
+            execute(composition.getFirstStatement(), state);
+            statement = composition.getSecondStatement();
+        }
+        if (statement instanceof Statement.Assignment) {
+            Statement.Assignment assignment = (Statement.Assignment) statement;
+            step();
+            state.substitute(value(assignment.getExpression(), state), assignment.getVariable());
+        } else if (statement instanceof Statement.Skip) {
+            step();
+        } else if (statement instanceof Statement.If) {
+            Statement.If ite = (Statement.If) statement;
+            step();
+            if (condition(ite.getCondition(), state)) {
+                execute(ite.getIfStatement(), state);
+            } else {
+                execute(ite.getElseStatement(), state);
+            }
+        } else if (statement instanceof Statement.While) {
+            Statement.While whl = (Statement.While) statement;
+            while (true) {
+                // unfolding the loop into an if-statement and evaluating its
+                // condition are two steps
+                step();
+                step();
+                if (!condition(whl.getCondition(), state)) {
+                    // the loop ends with a skip
+                    step();
+                    break;
+                }
+                execute(whl.getStatement(), state);
+            }
+        } else {
+            // unknown statements are run the usual way
+            smallStep(statement, state);
+        }
+    }
+
+    private static Object value(Expression expression, State state) {
+        if (expression instanceof Expression.Function) {
+            return ((Expression.Function) expression).compiled().evaluate(state);
+        }
+        return expression.getValue(state);
+    }
+
+    /*
+     * Checks the value of a condition the same way the if-statement does.
+     */
+    private static boolean condition(BooleanFormula condition, State state) {
+        Object value = value(condition, state);
+        if (value == null) {
+            throw new RuntimeException("Condition cannot be evaluated.");
+        } else if (!(value instanceof Boolean)) {
+            throw new RuntimeException("Condition is not of sort " + Expression.SORT_BOOLEAN + ".");
+        }
+        return (Boolean) value;
+    }
+
+    private void step() {
+        steps++;
+        if (steps > maxSteps) {
+            throw new ExecutionLimitException("Program did not terminate within "
+                    + maxSteps + " steps.", maxSteps);
+        }
+        if (deadline != 0 && steps % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+            throw new ExecutionLimitException("Program did not terminate within "
+                    + timeout + " ms.", steps);
+        }
+    }
+
+}
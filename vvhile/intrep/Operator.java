@@ -1,7 +1,9 @@
 package vvhile.intrep;
 
+import java.math.BigInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import vvhile.basic.language.Integers;
 import vvhile.hoare.BooleanFormula;
 
 /**
@@ -14,6 +16,15 @@ import vvhile.hoare.BooleanFormula;
  */
 public abstract class Operator<T> {
 
+    // bit i is set if the argument i is declared as BigInteger, the highest
+    // bit marks the mask as computed. Zero if not computed yet. Operators are
+    // shared by threads, and a long may be read in two halves unless it is
+    // volatile. A half with the highest bit but without the argument bits
+    // would pass Longs to a BigInteger operator.
+    private volatile long bigIntegerArguments;
+    private static final int ARGUMENT_BITS = 63;
+    private static final long COMPUTED = 1L << 63;
+
     /**
      * @return Array of types, here classes, of the arguments
      */
@@ -33,6 +44,107 @@ public abstract class Operator<T> {
      */
     public abstract T evaluate(Object... args);
 
+    /**
+     * Apply the operator to a single argument. Operators with one argument
+     * should override this method, so that no array has to be created for the
+     * argument. By default the general evaluate()-method is used.
+     *
+     * @param a the argument
+     * @return the operator value when applied to the argument
+     */
+    public T evaluate(Object a) {
+        return evaluate(new Object[]{a});
+    }
+
+    /**
+     * Apply the operator to two arguments. Operators with two arguments should
+     * override this method, so that no array has to be created for the
+     * arguments. By default the general evaluate()-method is used.
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the operator value when applied to the arguments
+     */
+    public T evaluate(Object a, Object b) {
+        return evaluate(new Object[]{a, b});
+    }
+
+    /**
+     * Applies the operator to values of a program, the way a function
+     * expression does. The integers of a program are Longs as long as they
+     * fit, see Integers, while the class of integer arguments is BigInteger.
+     * Hence, Long arguments are converted into BigIntegers if the operator
+     * declares BigInteger arguments, and a BigInteger result is converted
+     * back into the canonical form. Operators that work on Longs themselves,
+     * e.g. integer operators, override the apply()-methods.
+     *
+     * @param a the argument
+     * @return the operator value when applied to the argument
+     */
+    public Object apply(Object a) {
+        return canonical(evaluate(argument(0, a)));
+    }
+
+    /**
+     * Applies the operator to two values of a program, see apply(Object).
+     *
+     * @param a the first argument
+     * @param b the second argument
+     * @return the operator value when applied to the arguments
+     */
+    public Object apply(Object a, Object b) {
+        return canonical(evaluate(argument(0, a), argument(1, b)));
+    }
+
+    /**
+     * Applies the operator to values of a program, see apply(Object).
+     *
+     * @param args Array of arguments
+     * @return the operator value when applied to the arguments
+     */
+    public Object apply(Object... args) {
+        Object[] converted = args;
+        for (int i = 0; i < args.length; i++) {
+            Object value = argument(i, args[i]);
+            if (value != args[i]) {
+                if (converted == args) {
+                    converted = args.clone();
+                }
+                converted[i] = value;
+            }
+        }
+        return canonical(evaluate(converted));
+    }
+
+    /*
+     * Converts a Long argument into a BigInteger if the operator expects one.
+     */
+    private Object argument(int i, Object value) {
+        if (!(value instanceof Long)) {
+            return value;
+        }
+        long declared = bigIntegerArguments;
+        if (declared == 0) {
+            // the classes of the arguments never change, look at them once
+            Class<?>[] argClasses = getArgClasses();
+            declared = COMPUTED;
+            for (int k = 0; k < Math.min(argClasses.length, ARGUMENT_BITS); k++) {
+                if (argClasses[k] == BigInteger.class) {
+                    declared |= 1L << k;
+                }
+            }
+            bigIntegerArguments = declared;
+        }
+        boolean bigInteger = i < ARGUMENT_BITS
+                ? (declared & (1L << i)) != 0
+                : getArgClasses()[i] == BigInteger.class;
+        return bigInteger ? Integers.toBigInteger(value) : value;
+    }
+
+    private static Object canonical(Object value) {
+        return value instanceof BigInteger ? Integers.valueOf((BigInteger) value) : value;
+    }
+
     /**
      * If an operator is feed with expressions the result is a new expression of
      * function type. This methods creates this function expression corresponding
@@ -45,9 +157,10 @@ public abstract class Operator<T> {
      */
     public Expression.Function create(Expression[] args, boolean parentheses) {
         // determine the sorts of the arguments (names of the argument classes)
-        String[] argSorts = new String[getArgClasses().length];
+        Class[] argClasses = getArgClasses();
+        String[] argSorts = new String[argClasses.length];
         for (int i = 0; i < argSorts.length; i++) {
-            argSorts[i] = getArgClasses()[i].getSimpleName();
+            argSorts[i] = argClasses[i].getSimpleName();
         }
         // If the operator returns booleans then the resulting expression is a 
         // boolean function
@@ -132,6 +245,15 @@ public abstract class Operator<T> {
                 return new Class[]{A, B};
             }
 
+            @Override
+            public C evaluate(Object a, Object b) {
+                if (a == null || b == null) {
+                    return null;
+                }
+                // apply the bifunction to the arguments
+                return f.apply((A) a, (B) b);
+            }
+
             @Override
             public Class getReturnClass() {
                 return C;
@@ -143,13 +265,7 @@ public abstract class Operator<T> {
                 if (args.length != 2) {
                     throw new IllegalArgumentException("Wrong number of arguments.");
                 }
-                if (args[0] == null || args[1] == null) {
-                    return null;
-                }
-                // apply the bifunction to the arguments
-                A a = (A) args[0];
-                B b = (B) args[1];
-                return f.apply(a, b);
+                return evaluate(args[0], args[1]);
             }
 
             @Override
@@ -177,6 +293,15 @@ public abstract class Operator<T> {
                 return new Class[]{A};
             }
 
+            @Override
+            public B evaluate(Object a) {
+                if (a == null) {
+                    return null;
+                }
+                // apply the function to the argument
+                return f.apply((A) a);
+            }
+
             @Override
             public Class getReturnClass() {
                 return B;
@@ -188,12 +313,7 @@ public abstract class Operator<T> {
                 if (args.length != 1) {
                     throw new IllegalArgumentException("Wrong number of arguments.");
                 }
-                if (args[0] == null) {
-                    return null;
-                }
-                // apply the function to the argument
-                A a = (A) args[0];
-                return f.apply(a);
+                return evaluate(args[0]);
             }
 
             @Override
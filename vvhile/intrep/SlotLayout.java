@@ -0,0 +1,176 @@
+package vvhile.intrep;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import vvhile.hoare.AnnotatedStatement;
+import vvhile.hoare.BooleanFormula;
+
+/**
+ * A slot layout assigns a dense number, the slot, to every variable of a
+ * program. Resolving a statement creates a copy of the statement in which all
+ * variables carry their slot. Such a statement can then be executed in a slot
+ * state, where reading and writing a variable is an array access instead of a
+ * lookup in a hash map.
+ *
+ * A layout can resolve several statements and expressions, e.g. a program and
+ * its pre- and postcondition. Equal variables always get the same slot.
+ * Annotated statements are resolved through the statement they annotate, the
+ * annotations are left as they are. Statements the layout does not know are
+ * left as they are. A slot state finds the slot of their variables by a lookup
+ * in a hash map, so they see the same values, only slower.
+ *
+ * The usual map based state remains the right choice whenever the set of
+ * variables is not known in advance, e.g. for the Hoare calculus.
+ *
+ * @author markus
+ */
+public class SlotLayout {
+
+    // variables in the order of their slots
+    private final List<Expression.Variable> variables = new ArrayList<>();
+    private final Map<Expression.Variable, Expression.Variable> resolved = new HashMap<>();
+
+    /**
+     * Returns the given variable resolved to its slot. If the variable was not
+     * seen before, it gets a new slot.
+     *
+     * @param variable a variable
+     * @return the resolved variable
+     */
+    public Expression.Variable resolve(Expression.Variable variable) {
+        Expression.Variable result = resolved.get(variable);
+        if (result == null) {
+            result = variable.resolve(variables.size());
+            variables.add(result);
+            resolved.put(variable, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of the expression in which all free variables are
+     * resolved.
+     *
+     * @param expression an expression
+     * @return the resolved expression
+     */
+    public Expression resolve(Expression expression) {
+        return expression.subtitute(resolutions(expression));
+    }
+
+    /**
+     * Returns a copy of the boolean formula in which all free variables are
+     * resolved.
+     *
+     * @param formula a boolean formula
+     * @return the resolved formula
+     */
+    public BooleanFormula resolve(BooleanFormula formula) {
+        return formula.subtitute(resolutions(formula));
+    }
+
+    /*
+     * The resolved variables of all free variables of the expression, they are
+     * substituted at once.
+     */
+    private Map<Expression.Variable, Expression> resolutions(Expression expression) {
+        Map<Expression.Variable, Expression> resolutions = new HashMap<>();
+        for (Expression.Variable variable : expression.freeVariables()) {
+            resolutions.put(variable, resolve(variable));
+        }
+        return resolutions;
+    }
+
+    /**
+     * Returns a copy of the statement in which all variables are resolved.
+     *
+     * @param statement a statement
+     * @return the resolved statement
+     */
+    public Statement resolve(Statement statement) {
+        if (statement instanceof Statement.Assignment) {
+            Statement.Assignment assignment = (Statement.Assignment) statement;
+            return new Statement.Assignment(
+                    resolve(assignment.getVariable()),
+                    resolve(assignment.getExpression())
+            );
+        } else if (statement instanceof Statement.Composition) {
+            Statement.Composition composition = (Statement.Composition) statement;
+            return new Statement.Composition(
+                    resolve(composition.getFirstStatement()),
+                    resolve(composition.getSecondStatement())
+            );
+        } else if (statement instanceof Statement.If) {
+            Statement.If ite = (Statement.If) statement;
+            return new Statement.If(
+                    resolve(ite.getCondition()),
+                    resolve(ite.getIfStatement()),
+                    resolve(ite.getElseStatement())
+            );
+        } else if (statement instanceof Statement.While) {
+            Statement.While whl = (Statement.While) statement;
+            return new Statement.While(
+                    resolve(whl.getCondition()),
+                    resolve(whl.getStatement())
+            );
+        } else if (statement instanceof AnnotatedStatement) {
+            AnnotatedStatement annotated = (AnnotatedStatement) statement;
+            return new AnnotatedStatement(
+                    resolve(annotated.getStatement()),
+                    annotated.getPrefixes(),
+                    new LinkedList<>(annotated.getInfixes()),
+                    annotated.getPostfixes()
+            );
+        } else {
+            // skips and black boxes contain no variables, other statements
+            // are left as they are
+            return statement;
+        }
+    }
+
+    /**
+     * @return number of slots
+     */
+    public int size() {
+        return variables.size();
+    }
+
+    /**
+     * @return the resolved variables in the order of their slots
+     */
+    public List<Expression.Variable> getVariables() {
+        return Collections.unmodifiableList(variables);
+    }
+
+    /**
+     * Creates a new state with one slot for every variable of this layout.
+     *
+     * @return an empty slot state
+     */
+    public SlotState createState() {
+        return new SlotState(new ArrayList<>(variables));
+    }
+
+    /**
+     * Creates a new slot state with the values the given state assigns to the
+     * variables of this layout.
+     *
+     * @param state a state
+     * @return a slot state
+     */
+    public SlotState createState(State state) {
+        SlotState slotState = createState();
+        for (Expression.Variable variable : variables) {
+            Object value = state.getValueFor(variable);
+            if (value != null) {
+                slotState.substitute(value, variable);
+            }
+        }
+        return slotState;
+    }
+
+}
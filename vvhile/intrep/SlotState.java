@@ -0,0 +1,93 @@
+package vvhile.intrep;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A slot state stores the values of the variables of a slot layout in an
+ * array. Reading and writing a resolved variable is a simple array access.
+ * An unresolved variable that is equal to a variable of the layout shares its
+ * slot, which is looked up in a hash map. Variables the layout does not know,
+ * or that were added to the layout after the state was created, are stored in
+ * a map, just like in a usual state.
+ *
+ * A slot state must only be used with statements and expressions that were
+ * resolved by the layout that created the state.
+ *
+ * @author markus
+ * @see SlotLayout
+ */
+public class SlotState extends State {
+
+    private final List<Expression.Variable> variables;
+    private final Object[] values;
+    // the slots of the variables, created when an unresolved variable is used
+    private Map<Expression.Variable, Integer> slots;
+
+    /**
+     * Creates a new slot state for the given variables. The slot of each
+     * variable is its position in the list.
+     *
+     * @param variables the resolved variables
+     */
+    SlotState(List<Expression.Variable> variables) {
+        this.variables = variables;
+        this.values = new Object[variables.size()];
+    }
+
+    @Override
+    public Object getValueFor(Expression.Variable variable) {
+        int slot = slotOf(variable);
+        if (slot >= 0 && slot < values.length) {
+            return values[slot];
+        } else {
+            return super.getValueFor(variable);
+        }
+    }
+
+    @Override
+    public State substitute(Object value, Expression.Variable variable) {
+        int slot = slotOf(variable);
+        if (slot >= 0 && slot < values.length) {
+            values[slot] = value;
+            return this;
+        } else {
+            return super.substitute(value, variable);
+        }
+    }
+
+    /*
+     * The slot of the variable. An unresolved variable gets the slot of the
+     * equal variable of the layout, or -1 if there is none.
+     */
+    private int slotOf(Expression.Variable variable) {
+        int slot = variable.getSlot();
+        if (slot >= 0) {
+            return slot;
+        }
+        if (slots == null) {
+            slots = new HashMap<>();
+            for (int i = 0; i < variables.size(); i++) {
+                slots.put(variables.get(i), i);
+            }
+        }
+        return slots.getOrDefault(variable, -1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                builder
+                        .append(variables.get(slot))
+                        .append(" = ")
+                        .append(values[slot])
+                        .append("\n");
+            }
+        }
+        return builder.append(super.toString()).toString().trim();
+    }
+
+}
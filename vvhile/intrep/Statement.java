@@ -1,9 +1,9 @@
 package vvhile.intrep;
 
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
 import vvhile.hoare.BooleanFormula;
+import vvhile.util.Sets;
 
 /**
  * A statement is a piece of a program. Statements can be put together to create
@@ -30,6 +30,9 @@ public interface Statement extends ASTElement {
     public String toString(boolean latex);
 
     /**
+     * The sets of variables are computed only once and shared, they must not
+     * be modified.
+     *
      * @return the set of all variables appearing in this statement
      */
     public Set<Expression.Variable> variables();
@@ -57,6 +60,9 @@ public interface Statement extends ASTElement {
 
         private final Expression.Variable variable;
         private final Expression expression;
+        // the sets of variables, computed on first use
+        private Set<Expression.Variable> variables;
+        private Set<Expression.Variable> writtenVariables;
 
         /**
          * Creates a new assignment given the variable and the expression.
@@ -106,17 +112,22 @@ public interface Statement extends ASTElement {
 
         @Override
         public Set<Expression.Variable> variables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.add(variable);
-            variables.addAll(expression.freeVariables());
-            return variables;
+            Set<Expression.Variable> result = variables;
+            if (result == null) {
+                result = Sets.union(writtenVariables(), readVariables());
+                variables = result;
+            }
+            return result;
         }
 
         @Override
         public Set<Expression.Variable> writtenVariables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.add(variable);
-            return variables;
+            Set<Expression.Variable> result = writtenVariables;
+            if (result == null) {
+                result = Collections.singleton(variable);
+                writtenVariables = result;
+            }
+            return result;
         }
 
         @Override
@@ -178,6 +189,10 @@ public interface Statement extends ASTElement {
 
         private final Statement firstStatement;
         private final Statement secondStatement;
+        // the sets of variables, computed on first use
+        private Set<Expression.Variable> variables;
+        private Set<Expression.Variable> writtenVariables;
+        private Set<Expression.Variable> readVariables;
 
         /**
          * Creates a composition of the given statements
@@ -236,26 +251,32 @@ public interface Statement extends ASTElement {
 
         @Override
         public Set<Expression.Variable> variables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(firstStatement.variables());
-            variables.addAll(secondStatement.variables());
-            return variables;
+            Set<Expression.Variable> result = variables;
+            if (result == null) {
+                result = Sets.union(firstStatement.variables(), secondStatement.variables());
+                variables = result;
+            }
+            return result;
         }
 
         @Override
         public Set<Expression.Variable> writtenVariables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(firstStatement.writtenVariables());
-            variables.addAll(secondStatement.writtenVariables());
-            return variables;
+            Set<Expression.Variable> result = writtenVariables;
+            if (result == null) {
+                result = Sets.union(firstStatement.writtenVariables(), secondStatement.writtenVariables());
+                writtenVariables = result;
+            }
+            return result;
         }
 
         @Override
         public Set<Expression.Variable> readVariables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(firstStatement.readVariables());
-            variables.addAll(secondStatement.readVariables());
-            return variables;
+            Set<Expression.Variable> result = readVariables;
+            if (result == null) {
+                result = Sets.union(firstStatement.readVariables(), secondStatement.readVariables());
+                readVariables = result;
+            }
+            return result;
         }
 
     }
@@ -271,6 +292,10 @@ public interface Statement extends ASTElement {
         private final BooleanFormula condition;
         private final Statement ifStatement;
         private final Statement elseStatement;
+        // the sets of variables, computed on first use
+        private Set<Expression.Variable> variables;
+        private Set<Expression.Variable> writtenVariables;
+        private Set<Expression.Variable> readVariables;
 
         /**
          * Creates an if-then-else statement given the condition, the if and the
@@ -336,28 +361,32 @@ public interface Statement extends ASTElement {
 
         @Override
         public Set<Expression.Variable> variables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(condition.freeVariables());
-            variables.addAll(ifStatement.variables());
-            variables.addAll(elseStatement.variables());
-            return variables;
+            Set<Expression.Variable> result = variables;
+            if (result == null) {
+                result = Sets.union(condition.freeVariables(), ifStatement.variables(), elseStatement.variables());
+                variables = result;
+            }
+            return result;
         }
 
         @Override
         public Set<Expression.Variable> writtenVariables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(ifStatement.writtenVariables());
-            variables.addAll(elseStatement.writtenVariables());
-            return variables;
+            Set<Expression.Variable> result = writtenVariables;
+            if (result == null) {
+                result = Sets.union(ifStatement.writtenVariables(), elseStatement.writtenVariables());
+                writtenVariables = result;
+            }
+            return result;
         }
 
         @Override
         public Set<Expression.Variable> readVariables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(condition.freeVariables());
-            variables.addAll(ifStatement.readVariables());
-            variables.addAll(elseStatement.readVariables());
-            return variables;
+            Set<Expression.Variable> result = readVariables;
+            if (result == null) {
+                result = Sets.union(condition.freeVariables(), ifStatement.readVariables(), elseStatement.readVariables());
+                readVariables = result;
+            }
+            return result;
         }
 
     }
@@ -372,6 +401,9 @@ public interface Statement extends ASTElement {
 
         private final BooleanFormula condition;
         private final Statement statement;
+        // the sets of variables, computed on first use
+        private Set<Expression.Variable> variables;
+        private Set<Expression.Variable> readVariables;
 
         /**
          * Creates a while statement given the condition and the statement.
@@ -422,25 +454,27 @@ public interface Statement extends ASTElement {
 
         @Override
         public Set<Expression.Variable> variables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(condition.freeVariables());
-            variables.addAll(statement.variables());
-            return variables;
+            Set<Expression.Variable> result = variables;
+            if (result == null) {
+                result = Sets.union(condition.freeVariables(), statement.variables());
+                variables = result;
+            }
+            return result;
         }
 
         @Override
         public Set<Expression.Variable> writtenVariables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(statement.writtenVariables());
-            return variables;
+            return statement.writtenVariables();
         }
 
         @Override
         public Set<Expression.Variable> readVariables() {
-            Set<Expression.Variable> variables = new HashSet<>();
-            variables.addAll(condition.freeVariables());
-            variables.addAll(statement.readVariables());
-            return variables;
+            Set<Expression.Variable> result = readVariables;
+            if (result == null) {
+                result = Sets.union(condition.freeVariables(), statement.readVariables());
+                readVariables = result;
+            }
+            return result;
         }
 
     }
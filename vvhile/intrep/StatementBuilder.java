@@ -41,16 +41,21 @@ public class StatementBuilder implements ASTElementBuilder {
                     // Variable already exists, take it.
                     args[i] = vars.get(identifier.getName());
                 } else {
-                    // Otherwise, create a new one.
-                    args[i] = new Expression.Variable(Expression.SORT_UNKNOWN, identifier.getName());
+                    // Otherwise, create a new one and remember it, so that
+                    // all occurrences share it.
+                    Expression.Variable var = new Expression.Variable(Expression.SORT_UNKNOWN, identifier.getName());
+                    vars.put(identifier.getName(), var);
+                    args[i] = var;
                 }
             }
         }
-        // Use the creator to create the statement from the arguments
-        Statement statement = creator.create(args);
-        // reset the builder
-        insertAt = pattern.length - 1;
-        return statement;
+        try {
+            // Use the creator to create the statement from the arguments
+            return creator.create(args);
+        } finally {
+            // reset the builder, even if the arguments did not fit
+            insertAt = pattern.length - 1;
+        }
     }
 
     @Override
@@ -2,5 +2,8 @@
  * The intrep package deals with high level language data. An AST-compiler
  * creates an Abstract Syntax Tree from the data stream a parser provides. The
  * resulting tree is essentially an executable program, which is called Statement.
+ * Structurally equal expressions can be shared by means of the ExpressionFactory.
+ * Expressions that are evaluated over and over again, e.g. by the interpreter,
+ * are compiled into trees of closures by the ExpressionCompiler.
  */
 package vvhile.intrep;
@@ -6,7 +6,8 @@ import vvhile.frontend.ParseTree;
 import vvhile.frontend.Parser;
 import java.io.IOException;
 import vvhile.frontend.Scanner;
-import vvhile.util.BoundedBuffer;
+import vvhile.util.Buffer;
+import vvhile.util.RingBuffer;
 import vvhile.intrep.ASTCompiler;
 import vvhile.hoare.BooleanFormula;
 import vvhile.hoare.HoareProver;
@@ -65,22 +66,22 @@ public class Main {
 //        Scanner scanner = new Scanner(consoleToScanner);
         // Start scanner
         Scanner scanner = defaultScanner();
-        BoundedBuffer<Scanner.ScanObject> scannerToParser = new BoundedBuffer<>(32);
+        Buffer<Scanner.ScanObject> scannerToParser = new RingBuffer<>(32);
         scanner.startScan(scannerToParser);
 
         // Start parser
         Parser parser = new Parser(scannerToParser, ruleSet, BasicRuleSet.STM);
-        BoundedBuffer<Parser.ParseObject> parserToParseTree = new BoundedBuffer<>(32);
+        Buffer<Parser.ParseObject> parserToParseTree = new RingBuffer<>(32);
         parser.startParsing(BasicRuleSet.STM, parserToParseTree);
 
         // Start parse tree
         ParseTree parseTree = new ParseTree(parserToParseTree);
-        BoundedBuffer<Parser.ParseObject> parseTreeToASTCompiler = new BoundedBuffer<>(32);
+        Buffer<Parser.ParseObject> parseTreeToASTCompiler = new RingBuffer<>(32);
         parseTree.startRetranslation(parseTreeToASTCompiler);
 
         // start AST compiler
         ASTCompiler astCompiler = new ASTCompiler(parseTreeToASTCompiler, ruleSet);
-        BoundedBuffer<Parser.ParseObject> astCompilerToInterpreter = new BoundedBuffer<>(32);
+        Buffer<Parser.ParseObject> astCompilerToInterpreter = new RingBuffer<>(32);
         astCompiler.startCompilation(astCompilerToInterpreter);
 
         // wait for the started threads
@@ -1,9 +1,11 @@
 package vvhile.theorem;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import vvhile.basic.language.BasicOperators;
 import vvhile.intrep.Expression;
+import vvhile.intrep.ExpressionFactory;
 import vvhile.hoare.BooleanFormula;
 import vvhile.frontend.Parser;
 import vvhile.util.Experimental;
@@ -27,7 +29,7 @@ public class TheoremProver {
 
     public TheoremProver() {
         this.truth = new HashSet<>();
-        this.rules = new HashSet<>();
+        this.rules = new LinkedHashSet<>();
         addToTruth("true");
 
         addRule("!false", "true");
@@ -55,11 +57,13 @@ public class TheoremProver {
         addRule("a & b", "b & a", "a", "b");
         addRule("a | b", "b | a", "a", "b");
 
-        addToTruth("(P(0) & (^n. P(n) -> P(n+1))) -> (^n. P(n))");
+        // The language has no predicates and no quantifiers yet, so the
+        // induction axiom cannot be parsed.
+//        addToTruth("(P(0) & (^n. P(n) -> P(n+1))) -> (^n. P(n))");
     }
 
     public void addToTruth(BooleanFormula formula) {
-        truth.add(formula);
+        truth.add(ExpressionFactory.intern(formula));
     }
 
     public void addRule(ReplacementRule rule) {
@@ -78,7 +82,7 @@ public class TheoremProver {
     }
 
     public final void addToTruth(String formula) {
-        truth.add((BooleanFormula) Parser.parseExpression(formula));
+        addToTruth((BooleanFormula) Parser.parseExpression(formula));
     }
 
     public boolean canProve(String formula, int depth) throws NoProofFoundException {
@@ -90,6 +94,8 @@ public class TheoremProver {
     }
 
     public boolean prove(BooleanFormula formula, int depth) throws NoProofFoundException {
+        // canonical formulas are found in the truth set without walking them
+        formula = ExpressionFactory.intern(formula);
         if (formula instanceof BooleanFormula.BooleanFunction) {
             BooleanFormula.BooleanFunction fun = (BooleanFormula.BooleanFunction) formula;
             Expression[] args = fun.getArgs();
@@ -120,8 +126,8 @@ public class TheoremProver {
         for (ReplacementRule rule : rules) {
             Expression a = rule.a;
             Expression b = rule.b;
-            Expression try1 = formula.trySubtitute(a, b);
-            Expression try2 = formula.trySubtitute(b, a);
+            Expression try1 = replace(formula, a, b);
+            Expression try2 = replace(formula, b, a);
             if (try1 != null) {
                 if (prove((BooleanFormula) try1, depth - 1)) {
                     return true;
@@ -136,8 +142,8 @@ public class TheoremProver {
                 for (Expression sub : substitutes) {
                     a = a.subtitute(sub, var);
                     b = b.subtitute(sub, var);
-                    try1 = formula.trySubtitute(a, b);
-                    try2 = formula.trySubtitute(b, a);
+                    try1 = replace(formula, a, b);
+                    try2 = replace(formula, b, a);
                     if (try1 != null) {
                         if (prove((BooleanFormula) try1, depth - 1)) {
                             return true;
@@ -158,6 +164,19 @@ public class TheoremProver {
         }
     }
 
+    /*
+     * Replaces the occurrences of b in the formula by a. Returns null if b
+     * does not occur or if the result does not fit the sorts, e.g. if a
+     * boolean would replace a number.
+     */
+    private static Expression replace(BooleanFormula formula, Expression a, Expression b) {
+        try {
+            return formula.trySubtitute(a, b);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     @Override
     public String toString() {
         return "TheoremProver{" + "truth=" + truth + ", rules=" + rules + '}';
@@ -170,8 +189,8 @@ public class TheoremProver {
         private final Expression.Variable[] variables;
 
         public ReplacementRule(Expression a, Expression b, Expression.Variable... variables) {
-            this.a = a;
-            this.b = b;
+            this.a = ExpressionFactory.intern(a);
+            this.b = ExpressionFactory.intern(b);
             this.variables = variables;
         }
 
@@ -1,6 +1,8 @@
 package vvhile.util;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -11,11 +13,14 @@ import javax.swing.event.ChangeListener;
  * both the producer and the consumer work asynchronously. The buffer makes the
  * producer wait if the buffer is full and makes the consumer wait if the buffer
  * is empty.
+ *
+ * Every access acquires the monitor of the buffer. If the buffer connects
+ * exactly one producer with one consumer, a RingBuffer is faster.
  * 
  * @author markus
  * @param <T> type of data stored in the buffer
  */
-public class BoundedBuffer<T> {
+public class BoundedBuffer<T> implements Buffer<T> {
 
     private final Object[] buf;
     int in = 0;
@@ -42,19 +47,25 @@ public class BoundedBuffer<T> {
      * 
      * @param o an object
      */
+    @Override
     public synchronized void put(T o) {
+        boolean interrupted = false;
         while (count == size) { // buffer full ==> wait
             try {
                 wait();
             } catch (InterruptedException e) {
+                interrupted = true;
             }
         }
+        if (interrupted) {
+            // the wait is not interruptible, but the caller shall know
+            Thread.currentThread().interrupt();
+        }
         // at this point the buffer cannot be full. Add the object
         buf[in] = o;
         in = (in + 1) % size;
         count++;
-        // notify listeners
-        listeners.forEach(l -> l.stateChanged(new ChangeEvent(new Pair(o, true))));
+        notifyListeners(o, true);
         // notify all consumers
         notifyAll();
     }
@@ -66,25 +77,109 @@ public class BoundedBuffer<T> {
      * 
      * @return an object
      */
+    @Override
     public synchronized T get() {
+        boolean interrupted = false;
         while (count == 0) { // buffer empty ==> wait
             try {
                 wait();
             } catch (InterruptedException e) {
+                interrupted = true;
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
         // at this point the buffer cannot be empty. Retreive the object
         T o = (T) buf[out];
         buf[out] = null; 
         out = (out + 1) % size;
         count--; 
-        // notify listeners
-        listeners.forEach(l -> l.stateChanged(new ChangeEvent(new Pair(o, false))));
+        notifyListeners(o, false);
         // notify all producers
         notifyAll();
         return o;
     }
 
+    /**
+     * Adds all objects to the buffer. The monitor is acquired once for as
+     * many objects as fit into the buffer. If the buffer is full the calling
+     * thread must wait.
+     *
+     * @param objects a list of objects
+     */
+    @Override
+    public synchronized void putAll(List<? extends T> objects) {
+        boolean interrupted = false;
+        int i = 0;
+        while (i < objects.size()) {
+            while (count == size) { // buffer full ==> wait
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            // add as many objects as fit
+            while (count < size && i < objects.size()) {
+                T o = objects.get(i++);
+                buf[in] = o;
+                in = (in + 1) % size;
+                count++;
+                notifyListeners(o, true);
+            }
+            notifyAll();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Removes all available objects from the buffer, but at most the given
+     * number, and adds them to the collection. If the buffer is empty the
+     * calling thread must wait.
+     *
+     * @param collection receiver of the objects
+     * @param max maximal number of objects, at least 1
+     * @return number of objects removed
+     */
+    @Override
+    public synchronized int drainTo(Collection<? super T> collection, int max) {
+        boolean interrupted = false;
+        while (count == 0) { // buffer empty ==> wait
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        int n = Math.min(count, max);
+        for (int i = 0; i < n; i++) {
+            T o = (T) buf[out];
+            buf[out] = null;
+            out = (out + 1) % size;
+            count--;
+            collection.add(o);
+            notifyListeners(o, false);
+        }
+        notifyAll();
+        return n;
+    }
+
+    /*
+     * Tells the listeners that the object was added or removed.
+     */
+    private void notifyListeners(T o, boolean added) {
+        if (!listeners.isEmpty()) {
+            ChangeEvent event = new ChangeEvent(new Pair<>(o, added));
+            listeners.forEach(l -> l.stateChanged(event));
+        }
+    }
+
     /**
      * A listener is notified if an object is put into or retreived from the
      * buffer. The listener is supplied with the object and wether it was added
@@ -92,6 +187,7 @@ public class BoundedBuffer<T> {
      * 
      * @param listener a change listener
      */
+    @Override
     public void addListener(ChangeListener listener) {
         listeners.add(listener);
     }
@@ -0,0 +1,67 @@
+package vvhile.util;
+
+import java.util.Collection;
+import java.util.List;
+import javax.swing.event.ChangeListener;
+
+/**
+ * A buffer connects a producer and a consumer that work asynchronously. It
+ * stores a fixed capacity of data. The buffer makes the producer wait if it is
+ * full and makes the consumer wait if it is empty.
+ *
+ * @author markus
+ * @param <T> type of data stored in the buffer
+ */
+public interface Buffer<T> {
+
+    /**
+     * Adds an object to the buffer. If the buffer is already full then the
+     * calling thread must wait.
+     *
+     * @param o an object
+     */
+    public void put(T o);
+
+    /**
+     * Returns an object from the buffer. If the buffer is empty then the
+     * calling thread must wait.
+     *
+     * @return an object
+     */
+    public T get();
+
+    /**
+     * Adds all objects to the buffer in the given order. Implementations
+     * synchronize once per batch of objects instead of once per object. If
+     * the buffer is full then the calling thread must wait.
+     *
+     * @param objects a list of objects
+     */
+    public default void putAll(List<? extends T> objects) {
+        objects.forEach(this::put);
+    }
+
+    /**
+     * Removes the objects that are available, but at most the given number,
+     * and adds them to the collection. If the buffer is empty then the
+     * calling thread must wait for at least one object.
+     *
+     * @param collection receiver of the objects
+     * @param max maximal number of objects, at least 1
+     * @return number of objects removed
+     */
+    public default int drainTo(Collection<? super T> collection, int max) {
+        collection.add(get());
+        return 1;
+    }
+
+    /**
+     * A listener is notified if an object is put into or retreived from the
+     * buffer. The source of the event is a Pair of the object and wether it
+     * was added (true) or removed (false).
+     *
+     * @param listener a change listener
+     */
+    public void addListener(ChangeListener listener);
+
+}
@@ -0,0 +1,95 @@
+package vvhile.util;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * A buffer reader takes the objects from a buffer in batches and hands them
+ * out one by one. Hence, the consumer synchronizes with the buffer once per
+ * batch instead of once per object. A reader never waits for a batch to be
+ * complete: it takes whatever is available.
+ *
+ * A stage that reads and writes in batches would hold back its output while
+ * it waits for input, e.g. if the input is typed by a user. Therefore a reader
+ * can be given the writer of the same stage, which is flushed before the next
+ * batch is taken from the buffer.
+ *
+ * @author markus
+ * @param <T> type of data stored in the buffer
+ */
+public class BufferReader<T> implements Supplier<T> {
+
+    /**
+     * The number of objects taken at once, unless stated otherwise.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 16;
+
+    private final Buffer<T> buffer;
+    private final int batchSize;
+    private final ArrayDeque<T> batch;
+    private final BufferWriter<?> writer;
+
+    /**
+     * Creates a new reader with the default batch size.
+     *
+     * @param buffer the buffer to read from
+     */
+    public BufferReader(Buffer<T> buffer) {
+        this(buffer, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new reader.
+     *
+     * @param buffer the buffer to read from
+     * @param batchSize maximal number of objects taken at once
+     */
+    public BufferReader(Buffer<T> buffer, int batchSize) {
+        this(buffer, batchSize, null);
+    }
+
+    /**
+     * Creates a new reader with the default batch size that flushes the
+     * given writer before it takes the next batch.
+     *
+     * @param buffer the buffer to read from
+     * @param writer the writer of the same stage
+     */
+    public BufferReader(Buffer<T> buffer, BufferWriter<?> writer) {
+        this(buffer, DEFAULT_BATCH_SIZE, writer);
+    }
+
+    /**
+     * Creates a new reader.
+     *
+     * @param buffer the buffer to read from
+     * @param batchSize maximal number of objects taken at once
+     * @param writer the writer of the same stage, flushed before the next
+     * batch is taken, or null
+     */
+    public BufferReader(Buffer<T> buffer, int batchSize, BufferWriter<?> writer) {
+        this.buffer = buffer;
+        this.batchSize = batchSize;
+        this.batch = new ArrayDeque<>(batchSize);
+        this.writer = writer;
+    }
+
+    /**
+     * Returns the next object. If there is none left from the last batch,
+     * the next batch is taken from the buffer, which may wait. Before that
+     * the writer of the stage is flushed, if there is one.
+     *
+     * @return next object
+     */
+    @Override
+    public T get() {
+        if (batch.isEmpty()) {
+            if (writer != null) {
+                writer.flush();
+            }
+            buffer.drainTo(batch, batchSize);
+        }
+        return batch.poll();
+    }
+
+}
@@ -0,0 +1,75 @@
+package vvhile.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A buffer writer collects objects and puts them into a buffer in batches.
+ * Hence, the producer synchronizes with the buffer once per batch instead of
+ * once per object. The consumer does not see an object before the batch is
+ * full or flush() is called, so the producer must flush after its last
+ * object and whenever it may have to wait for its own input, e.g. for a user
+ * typing the program. Otherwise the consumer waits for objects that are
+ * already done.
+ *
+ * @author markus
+ * @param <T> type of data stored in the buffer
+ */
+public class BufferWriter<T> implements Consumer<T> {
+
+    /**
+     * The number of objects put at once, unless stated otherwise.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 16;
+
+    private final Buffer<T> buffer;
+    private final int batchSize;
+    private final List<T> batch;
+
+    /**
+     * Creates a new writer with the default batch size.
+     *
+     * @param buffer the buffer to write to
+     */
+    public BufferWriter(Buffer<T> buffer) {
+        this(buffer, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new writer.
+     *
+     * @param buffer the buffer to write to
+     * @param batchSize number of objects put at once
+     */
+    public BufferWriter(Buffer<T> buffer, int batchSize) {
+        this.buffer = buffer;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Adds an object to the current batch. A full batch is put into the
+     * buffer, which may wait.
+     *
+     * @param o an object
+     */
+    @Override
+    public void accept(T o) {
+        batch.add(o);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Puts the objects of the current batch into the buffer.
+     */
+    public void flush() {
+        if (!batch.isEmpty()) {
+            buffer.putAll(batch);
+            batch.clear();
+        }
+    }
+
+}
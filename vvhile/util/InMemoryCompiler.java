@@ -0,0 +1,180 @@
+package vvhile.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.CodeSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * An in-memory compiler turns Java source code that was generated at runtime
+ * into a loaded class. Neither the source code nor the resulting class files
+ * touch the file system. The generated classes may refer to all classes that
+ * are visible to this framework.
+ *
+ * The compiler relies on the system Java compiler. If the program runs on a
+ * runtime without one, isAvailable() returns false and nothing can be
+ * compiled.
+ *
+ * @author markus
+ */
+public class InMemoryCompiler {
+
+    /**
+     * @return true if the system Java compiler can be used
+     */
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /**
+     * Compiles the given source code and loads the class of the given name. A
+     * new class loader is used for every call, so that the class can be
+     * garbage collected as soon as it is not used anymore.
+     *
+     * @param className fully qualified name of the class
+     * @param source the source code of the class
+     * @return the loaded class
+     * @throws IllegalStateException if there is no system Java compiler or
+     * the source code cannot be compiled
+     */
+    public Class<?> compile(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("There is no system Java compiler available.");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager standardManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            MemoryFileManager fileManager = new MemoryFileManager(standardManager);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-classpath", classPath(), "-nowarn", "-g:none"),
+                    null, List.of(new SourceFile(className, source)));
+            if (!task.call()) {
+                StringBuilder builder = new StringBuilder("Generated class " + className + " does not compile:");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    builder.append('\n').append(diagnostic.getMessage(null));
+                }
+                throw new IllegalStateException(builder.toString());
+            }
+            return new MemoryClassLoader(fileManager.classes).loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Generated class " + className + " was not found.", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("The file manager could not be closed.", e);
+        }
+    }
+
+    /*
+     * The generated classes must see this framework. Use the class path of the
+     * running program and the location this class was loaded from.
+     */
+    private static String classPath() {
+        String classPath = System.getProperty("java.class.path", "");
+        CodeSource codeSource = InMemoryCompiler.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null && codeSource.getLocation() != null) {
+            try {
+                String location = new File(codeSource.getLocation().toURI()).getPath();
+                classPath = classPath.isEmpty() ? location : classPath + File.pathSeparator + location;
+            } catch (Exception e) {
+                // the location is not a local file, stay with the class path
+            }
+        }
+        return classPath;
+    }
+
+    /*
+     * A source file whose content is held in a string.
+     */
+    private static class SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+    /*
+     * A class file whose content is written to a byte array.
+     */
+    private static class ClassFile extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+
+    }
+
+    /*
+     * The file manager collects all class files written by the compiler.
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, ClassFile> classes = new HashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                JavaFileObject.Kind kind, FileObject sibling) {
+            ClassFile file = new ClassFile(className);
+            classes.put(className, file);
+            return file;
+        }
+
+    }
+
+    /*
+     * The class loader defines the compiled classes from their byte arrays.
+     */
+    private static class MemoryClassLoader extends ClassLoader {
+
+        private final Map<String, ClassFile> classes;
+
+        MemoryClassLoader(Map<String, ClassFile> classes) {
+            super(InMemoryCompiler.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ClassFile file = classes.get(name);
+            if (file == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytes = file.bytes.toByteArray();
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
@@ -0,0 +1,269 @@
+package vvhile.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * A ring buffer is a lock-free buffer for exactly one producer and one
+ * consumer, which is how the stages of the compilation are connected. The
+ * producer only writes the tail index, the consumer only writes the head
+ * index. Neither put() nor get() acquire a lock.
+ *
+ * A thread that has to wait first spins for a short while, since the other
+ * side usually catches up quickly. Then it yields a few times and finally
+ * parks until the other side wakes it up.
+ *
+ * Using a ring buffer with more than one producer or more than one consumer
+ * corrupts the data.
+ *
+ * @author markus
+ * @param <T> type of data stored in the buffer
+ */
+public class RingBuffer<T> implements Buffer<T> {
+
+    // the number of times a waiting thread checks the indices before it
+    // yields. Spinning is useless if the other side cannot run at the same time.
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+    // the number of times a waiting thread yields before it parks
+    private static final int YIELDS = SPINS + 16;
+    // the indices of each side lie in their own cache line of this array, so
+    // that producer and consumer do not slow each other down. The consumer
+    // writes the head index and the last tail index it has seen, the producer
+    // writes the tail index and the last head index it has seen.
+    private static final int PADDING = 16;
+    private static final int HEAD = PADDING;
+    private static final int CACHED_TAIL = HEAD + 1;
+    private static final int TAIL = 2 * PADDING;
+    private static final int CACHED_HEAD = TAIL + 1;
+
+    private final Object[] buf;
+    private final int capacity;
+    private final AtomicLongArray indices;
+    private final List<ChangeListener> listeners;
+
+    // the threads that are parked, if any
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+
+    /**
+     * Creates a ring buffer with the given capacity.
+     *
+     * @param capacity the fixed capacity for this buffer
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.buf = new Object[capacity];
+        this.capacity = capacity;
+        this.indices = new AtomicLongArray(3 * PADDING);
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    @Override
+    public void put(T o) {
+        long tail = indices.getPlain(TAIL);
+        headForPut(tail);
+        buf[(int) (tail % capacity)] = o;
+        // notify listeners before the consumer can see the object
+        if (!listeners.isEmpty()) {
+            fire(o, true);
+        }
+        indices.set(TAIL, tail + 1);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            // wake it only once
+            waitingConsumer = null;
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        long head = indices.getPlain(HEAD);
+        tailForGet(head);
+        int i = (int) (head % capacity);
+        T o = (T) buf[i];
+        buf[i] = null;
+        if (!listeners.isEmpty()) {
+            fire(o, false);
+        }
+        indices.set(HEAD, head + 1);
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            // wake it only once
+            waitingProducer = null;
+            LockSupport.unpark(producer);
+        }
+        return o;
+    }
+
+    /**
+     * Adds all objects to the buffer. The tail index is published once for as
+     * many objects as fit into the buffer.
+     *
+     * @param objects a list of objects
+     */
+    @Override
+    public void putAll(List<? extends T> objects) {
+        int i = 0;
+        while (i < objects.size()) {
+            long tail = indices.getPlain(TAIL);
+            long head = headForPut(tail);
+            int n = (int) Math.min(capacity - (tail - head), objects.size() - i);
+            for (int j = 0; j < n; j++) {
+                T o = objects.get(i++);
+                buf[(int) ((tail + j) % capacity)] = o;
+                if (!listeners.isEmpty()) {
+                    fire(o, true);
+                }
+            }
+            indices.set(TAIL, tail + n);
+            Thread consumer = waitingConsumer;
+            if (consumer != null) {
+                waitingConsumer = null;
+                LockSupport.unpark(consumer);
+            }
+        }
+    }
+
+    /**
+     * Removes all available objects, but at most the given number. The head
+     * index is published once for all of them.
+     *
+     * @param collection receiver of the objects
+     * @param max maximal number of objects, at least 1
+     * @return number of objects removed
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super T> collection, int max) {
+        long head = indices.getPlain(HEAD);
+        long tail = tailForGet(head);
+        int n = (int) Math.min(tail - head, max);
+        for (int j = 0; j < n; j++) {
+            int i = (int) ((head + j) % capacity);
+            T o = (T) buf[i];
+            buf[i] = null;
+            collection.add(o);
+            if (!listeners.isEmpty()) {
+                fire(o, false);
+            }
+        }
+        indices.set(HEAD, head + n);
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            waitingProducer = null;
+            LockSupport.unpark(producer);
+        }
+        return n;
+    }
+
+    @Override
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /*
+     * Returns the head index as seen by the producer. If the buffer is full,
+     * it waits until the consumer has taken an object.
+     */
+    private long headForPut(long tail) {
+        long head = indices.getPlain(CACHED_HEAD);
+        if (tail - head == capacity) {
+            // buffer seems to be full, look again
+            head = indices.get(HEAD);
+            if (tail - head == capacity) {
+                head = awaitSpace(tail);
+            }
+            indices.setPlain(CACHED_HEAD, head);
+        }
+        return head;
+    }
+
+    /*
+     * Returns the tail index as seen by the consumer. If the buffer is empty,
+     * it waits until the producer has put an object.
+     */
+    private long tailForGet(long head) {
+        long tail = indices.getPlain(CACHED_TAIL);
+        if (tail == head) {
+            // buffer seems to be empty, look again
+            tail = indices.get(TAIL);
+            if (tail == head) {
+                tail = awaitData(head);
+            }
+            indices.setPlain(CACHED_TAIL, tail);
+        }
+        return tail;
+    }
+
+    /*
+     * Waits until the consumer has taken an object and returns the new head
+     * index.
+     */
+    private long awaitSpace(long tail) {
+        boolean interrupted = false;
+        long head;
+        for (int i = 0; tail - (head = indices.get(HEAD)) == capacity; i++) {
+            if (i < SPINS) {
+                Thread.onSpinWait();
+            } else if (i < YIELDS) {
+                Thread.yield();
+            } else {
+                // announce the wait before the last check, so the consumer
+                // cannot miss it
+                waitingProducer = Thread.currentThread();
+                if (tail - indices.get(HEAD) == capacity) {
+                    LockSupport.park(this);
+                }
+                waitingProducer = null;
+                // like the bounded buffer, the wait is not interruptible
+                interrupted |= Thread.interrupted();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return head;
+    }
+
+    /*
+     * Waits until the producer has put an object and returns the new tail
+     * index.
+     */
+    private long awaitData(long head) {
+        boolean interrupted = false;
+        long tail;
+        for (int i = 0; (tail = indices.get(TAIL)) == head; i++) {
+            if (i < SPINS) {
+                Thread.onSpinWait();
+            } else if (i < YIELDS) {
+                Thread.yield();
+            } else {
+                waitingConsumer = Thread.currentThread();
+                if (indices.get(TAIL) == head) {
+                    LockSupport.park(this);
+                }
+                waitingConsumer = null;
+                interrupted |= Thread.interrupted();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return tail;
+    }
+
+    private void fire(T o, boolean added) {
+        ChangeEvent event = new ChangeEvent(new Pair<>(o, added));
+        listeners.forEach(l -> l.stateChanged(event));
+    }
+
+}
@@ -0,0 +1,85 @@
+package vvhile.util;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Operations on unmodifiable sets. The results are unmodifiable as well and
+ * share the given sets where possible, so that sets which are cached by
+ * immutable objects, e.g. the free variables of an expression, can be combined
+ * without copying them over and over again.
+ *
+ * The results may be published to other threads without synchronization: a
+ * result is either one of the given sets, an empty set or an unmodifiable
+ * wrapper whose contents are fixed when it is created.
+ *
+ * @author markus
+ */
+public final class Sets {
+
+    private Sets() {
+    }
+
+    /**
+     * Returns the union of the given unmodifiable sets. If one of the sets
+     * contains the other one, it is returned itself.
+     *
+     * @param <T> type of the elements
+     * @param a an unmodifiable set
+     * @param b an unmodifiable set
+     * @return the union of both sets, must not be modified
+     */
+    public static <T> Set<T> union(Set<T> a, Set<T> b) {
+        if (a == b || b.isEmpty()) {
+            return a;
+        } else if (a.isEmpty()) {
+            return b;
+        }
+        if (a.size() >= b.size()) {
+            if (a.containsAll(b)) {
+                return a;
+            }
+        } else if (b.containsAll(a)) {
+            return b;
+        }
+        Set<T> union = new HashSet<>(a);
+        union.addAll(b);
+        return Collections.unmodifiableSet(union);
+    }
+
+    /**
+     * Returns the union of the given unmodifiable sets.
+     *
+     * @param <T> type of the elements
+     * @param sets unmodifiable sets
+     * @return the union of all sets, must not be modified
+     */
+    @SafeVarargs
+    public static <T> Set<T> union(Set<T>... sets) {
+        Set<T> union = Collections.emptySet();
+        for (Set<T> set : sets) {
+            union = union(union, set);
+        }
+        return union;
+    }
+
+    /**
+     * Returns the given unmodifiable set without the given element. If the
+     * element is not contained, the set itself is returned.
+     *
+     * @param <T> type of the elements
+     * @param set an unmodifiable set
+     * @param element an element
+     * @return the set without the element, must not be modified
+     */
+    public static <T> Set<T> without(Set<T> set, T element) {
+        if (!set.contains(element)) {
+            return set;
+        }
+        Set<T> result = new HashSet<>(set);
+        result.remove(element);
+        return Collections.unmodifiableSet(result);
+    }
+
+}
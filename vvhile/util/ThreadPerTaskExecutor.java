@@ -0,0 +1,29 @@
+package vvhile.util;
+
+import java.util.concurrent.Executor;
+
+/**
+ * An executor that starts a new platform thread with a fixed name for every
+ * task. This is how the stages of the compilation run by default.
+ *
+ * @author markus
+ */
+public class ThreadPerTaskExecutor implements Executor {
+
+    private final String name;
+
+    /**
+     * Creates a new executor.
+     *
+     * @param name name of the started threads
+     */
+    public ThreadPerTaskExecutor(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        new Thread(command, name).start();
+    }
+
+}
@@ -0,0 +1,163 @@
+package vvhile.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A weak interner keeps one canonical instance of every class of equivalent
+ * objects. The equivalence is not necessarily the one given by equals(), it is
+ * defined by a hash function and a predicate passed to the constructor.
+ *
+ * The canonical instances are only weakly referenced. If an instance is not
+ * used anywhere else, it is garbage collected and removed from the interner.
+ *
+ * All methods are synchronized, so an interner can be shared by several
+ * threads.
+ *
+ * @author markus
+ * @param <T> type of the interned objects
+ */
+public class WeakInterner<T> {
+
+    private final ToIntFunction<? super T> hash;
+    private final BiPredicate<? super T, ? super T> equivalent;
+    // the references of collected instances are put into this queue
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+    private Entry<T>[] table;
+    private int size;
+
+    /**
+     * Creates a new interner.
+     *
+     * @param hash hash function, equivalent objects must have the same hash
+     * @param equivalent true if two objects are equivalent
+     */
+    public WeakInterner(ToIntFunction<? super T> hash, BiPredicate<? super T, ? super T> equivalent) {
+        this.hash = hash;
+        this.equivalent = equivalent;
+        this.table = newTable(64);
+    }
+
+    /**
+     * Returns the canonical instance that is equivalent to the given object.
+     * If there is none, the object becomes the canonical instance.
+     *
+     * @param object an object
+     * @return the canonical instance
+     */
+    public synchronized T intern(T object) {
+        expunge();
+        int h = hash.applyAsInt(object);
+        T canonical = find(object, h);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (2 * (size + 1) > table.length) {
+            resize();
+        }
+        int index = index(h, table.length);
+        table[index] = new Entry<>(object, h, table[index], queue);
+        size++;
+        return object;
+    }
+
+    /**
+     * Returns the canonical instance that is equivalent to the given object
+     * without adding the object.
+     *
+     * @param object an object
+     * @return the canonical instance or null if there is none
+     */
+    public synchronized T get(T object) {
+        expunge();
+        return find(object, hash.applyAsInt(object));
+    }
+
+    /**
+     * @return number of canonical instances that were not collected yet
+     */
+    public synchronized int size() {
+        expunge();
+        return size;
+    }
+
+    private T find(T object, int h) {
+        for (Entry<T> entry = table[index(h, table.length)]; entry != null; entry = entry.next) {
+            if (entry.hash == h) {
+                T candidate = entry.get();
+                if (candidate != null && (candidate == object || equivalent.test(candidate, object))) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void resize() {
+        Entry<T>[] newTable = newTable(2 * table.length);
+        for (Entry<T> entry : table) {
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                int index = index(entry.hash, newTable.length);
+                entry.next = newTable[index];
+                newTable[index] = entry;
+                entry = next;
+            }
+        }
+        table = newTable;
+    }
+
+    /*
+     * Removes the entries of collected instances.
+     */
+    private void expunge() {
+        Reference<? extends T> reference;
+        while ((reference = queue.poll()) != null) {
+            Entry<?> collected = (Entry<?>) reference;
+            int index = index(collected.hash, table.length);
+            Entry<T> previous = null;
+            for (Entry<T> entry = table[index]; entry != null; previous = entry, entry = entry.next) {
+                if (entry == collected) {
+                    if (previous == null) {
+                        table[index] = entry.next;
+                    } else {
+                        previous.next = entry.next;
+                    }
+                    size--;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int index(int h, int length) {
+        // spread the high bits, the table length is a power of two
+        return (h ^ (h >>> 16)) & (length - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newTable(int length) {
+        return (Entry<T>[]) new Entry<?>[length];
+    }
+
+    /*
+     * An entry of the table: a weakly referenced instance and its hash. The
+     * entries of a bucket form a linked list.
+     */
+    private static class Entry<T> extends WeakReference<T> {
+
+        private final int hash;
+        private Entry<T> next;
+
+        Entry(T referent, int hash, Entry<T> next, ReferenceQueue<T> queue) {
+            super(referent, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+
+    }
+
+}